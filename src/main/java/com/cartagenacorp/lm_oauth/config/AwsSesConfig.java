@@ -5,8 +5,13 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.SesAsyncClient;
+import software.amazon.awssdk.services.ses.SesAsyncClientBuilder;
+
+import java.net.URI;
+import java.time.Duration;
 
 @Configuration
 public class AwsSesConfig {
@@ -20,12 +25,28 @@ public class AwsSesConfig {
     @Value("${aws.region}")
     private String region;
 
+    // Permite apuntar a un stub local de SES (p. ej. LocalStack) en desarrollo y pruebas
+    @Value("${aws.ses.endpoint:}")
+    private String endpoint;
+
+    @Value("${aws.ses.max-concurrency:50}")
+    private int maxConcurrency;
+
+    @Value("${aws.ses.connection-acquire-timeout:PT5S}")
+    private Duration connectionAcquireTimeout;
+
     @Bean
-    public SesClient sesClient() {
+    public SesAsyncClient sesAsyncClient() {
         AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
-        return SesClient.builder()
+        SesAsyncClientBuilder builder = SesAsyncClient.builder()
                 .region(Region.of(region))
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
-                .build();
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConcurrency)
+                        .connectionAcquisitionTimeout(connectionAcquireTimeout));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
     }
 }
@@ -0,0 +1,33 @@
+package com.cartagenacorp.lm_oauth.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.http.client")
+public class HttpClientProperties {
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Tiempo máximo esperando una conexión libre del pool antes de fallar.
+     */
+    private Duration acquireTimeout = Duration.ofSeconds(1);
+
+    private int maxConnections = 50;
+
+    private int maxConnectionsPerRoute = 20;
+
+    private Duration idleEviction = Duration.ofSeconds(30);
+
+    private Duration connectionTimeToLive = Duration.ofMinutes(5);
+
+    /**
+     * Usa el cliente HTTP/2 del JDK en lugar del pool de Apache HttpClient (sin métricas de pool).
+     */
+    private boolean http2 = false;
+}
@@ -0,0 +1,47 @@
+package com.cartagenacorp.lm_oauth.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.jwt.signing")
+public class JwtSigningProperties {
+
+    /**
+     * HS256 (secreto compartido app.jwt.secret), RS256 o ES256.
+     */
+    private String algorithm = "HS256";
+
+    /**
+     * kid de la clave con la que se firman los tokens nuevos. Las demás claves sólo verifican.
+     */
+    private String activeKeyId;
+
+    /**
+     * Acepta tokens HS256 sin kid firmados con app.jwt.secret durante la migración a firma asimétrica.
+     */
+    private boolean acceptLegacyHmac = true;
+
+    /**
+     * Segundos que los clientes pueden cachear /.well-known/jwks.json.
+     */
+    private long jwksMaxAge = 300;
+
+    private List<KeyDefinition> keys = new ArrayList<>();
+
+    @Data
+    public static class KeyDefinition {
+        private String id;
+        /**
+         * PEM PKCS#8 o ubicación de recurso (file:, classpath:). Opcional para claves retiradas.
+         */
+        private String privateKey;
+        /**
+         * PEM X.509 o ubicación de recurso (file:, classpath:).
+         */
+        private String publicKey;
+    }
+}
@@ -0,0 +1,58 @@
+package com.cartagenacorp.lm_oauth.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Máximo de claves (email o IP) con bucket en memoria; las menos usadas se descartan primero.
+     */
+    private long maxKeys = 100_000;
+
+    /**
+     * Tiempo sin peticiones tras el que se descarta el bucket de una clave.
+     */
+    private Duration idleExpiry = Duration.ofMinutes(15);
+
+    /**
+     * Tamaño máximo del cuerpo en los endpoints limitados por email; uno mayor se rechaza con 413.
+     */
+    private int maxBodyBytes = 16 * 1024;
+
+    /**
+     * Se aplica la primera política cuyo patrón coincida con la ruta.
+     */
+    private List<Policy> policies = new ArrayList<>();
+
+    @Data
+    public static class Policy {
+
+        private String path;
+
+        /**
+         * JSON Pointer del campo del cuerpo que enlaza el controlador, p. ej. {@code /registerRequestDto/email}.
+         */
+        private String emailField = "/email";
+
+        private Rule email;
+
+        private Rule ip;
+    }
+
+    @Data
+    public static class Rule {
+
+        private int capacity;
+
+        private Duration period;
+    }
+}
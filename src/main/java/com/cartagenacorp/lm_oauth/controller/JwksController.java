@@ -0,0 +1,31 @@
+package com.cartagenacorp.lm_oauth.controller;
+
+import com.cartagenacorp.lm_oauth.config.JwtSigningProperties;
+import com.cartagenacorp.lm_oauth.security.JwtKeyRing;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+public class JwksController {
+
+    private final JwtKeyRing jwtKeyRing;
+    private final JwtSigningProperties jwtSigningProperties;
+
+    public JwksController(JwtKeyRing jwtKeyRing, JwtSigningProperties jwtSigningProperties) {
+        this.jwtKeyRing = jwtKeyRing;
+        this.jwtSigningProperties = jwtSigningProperties;
+    }
+
+    @GetMapping("/.well-known/jwks.json") // lo consumen los microservicios para verificar tokens localmente
+    public ResponseEntity<Map<String, List<Map<String, Object>>>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(jwtSigningProperties.getJwksMaxAge())).cachePublic())
+                .body(Map.of("keys", jwtKeyRing.getPublicJwks()));
+    }
+}
@@ -1,26 +1,39 @@
 package com.cartagenacorp.lm_oauth.controller;
 
+import com.cartagenacorp.lm_oauth.dto.EmailDeliveryDTO;
 import com.cartagenacorp.lm_oauth.dto.NotificationResponse;
 import com.cartagenacorp.lm_oauth.dto.OtpRequest;
 import com.cartagenacorp.lm_oauth.dto.OtpResponse;
+import com.cartagenacorp.lm_oauth.service.EmailOutboxService;
+import com.cartagenacorp.lm_oauth.service.OtpFunctionalityCatalog;
+import com.cartagenacorp.lm_oauth.service.OtpRetentionService;
 import com.cartagenacorp.lm_oauth.service.OtpService;
+import com.cartagenacorp.lm_oauth.util.ConstantUtil;
+import com.cartagenacorp.lm_oauth.util.ResponseUtil;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/otp")
 public class OtpController {
 
     private final OtpService otpService;
+    private final EmailOutboxService emailOutboxService;
+    private final OtpFunctionalityCatalog otpFunctionalityCatalog;
+    private final OtpRetentionService otpRetentionService;
 
-    public OtpController(OtpService otpService) {
+    public OtpController(OtpService otpService, EmailOutboxService emailOutboxService,
+                         OtpFunctionalityCatalog otpFunctionalityCatalog, OtpRetentionService otpRetentionService) {
         this.otpService = otpService;
+        this.emailOutboxService = emailOutboxService;
+        this.otpFunctionalityCatalog = otpFunctionalityCatalog;
+        this.otpRetentionService = otpRetentionService;
     }
 
     @PostMapping("/generate")
@@ -29,6 +42,31 @@ public class OtpController {
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .header("X-PHRASE", otpResponse.getPassphrase())
+                .header("X-DELIVERY-ID", otpResponse.getDeliveryId().toString())
                 .body(otpResponse.getNotificationResponse());
     }
+
+    @GetMapping("/delivery/{deliveryId}")
+    @PreAuthorize("hasAnyAuthority('ORGANIZATION_CONTROL')")
+    public ResponseEntity<EmailDeliveryDTO> getDelivery(@PathVariable UUID deliveryId) {
+        return ResponseEntity.ok(emailOutboxService.getDelivery(deliveryId));
+    }
+
+    @PostMapping("/functionalities/reload")
+    @PreAuthorize("hasAnyAuthority('ORGANIZATION_CONTROL')")
+    public ResponseEntity<NotificationResponse> reloadFunctionalities() {
+        int loaded = otpFunctionalityCatalog.reload();
+        return ResponseEntity.ok(ResponseUtil.success("Catálogo de funcionalidades OTP recargado: " + loaded, HttpStatus.OK));
+    }
+
+    @PostMapping("/retention/partition") // conversión de la tabla otp a particionada, sin vuelta atrás
+    @PreAuthorize("hasAnyAuthority('ORGANIZATION_CONTROL')")
+    public ResponseEntity<NotificationResponse> partitionOtpTable() {
+        if (!otpRetentionService.requestPartitioning()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ResponseUtil.error(ConstantUtil.OTP_PARTITIONING_UNAVAILABLE, HttpStatus.CONFLICT));
+        }
+        return ResponseEntity.accepted()
+                .body(ResponseUtil.success(ConstantUtil.Success.OTP_PARTITIONING_STARTED, HttpStatus.ACCEPTED));
+    }
 }
@@ -1,19 +1,25 @@
 package com.cartagenacorp.lm_oauth.controller;
 
+import com.cartagenacorp.lm_oauth.dto.CursorPageResponseDTO;
 import com.cartagenacorp.lm_oauth.dto.NotificationResponse;
 import com.cartagenacorp.lm_oauth.dto.PageResponseDTO;
 import com.cartagenacorp.lm_oauth.dto.UserDTO;
 import com.cartagenacorp.lm_oauth.entity.RefreshToken;
-import com.cartagenacorp.lm_oauth.entity.User;
 import com.cartagenacorp.lm_oauth.dto.UserDtoResponse;
-import com.cartagenacorp.lm_oauth.repository.UserRepository;
+import com.cartagenacorp.lm_oauth.dto.UserImportJobDTO;
+import com.cartagenacorp.lm_oauth.security.AuthenticatedUser;
 import com.cartagenacorp.lm_oauth.service.RefreshTokenService;
+import com.cartagenacorp.lm_oauth.service.UserExportService;
 import com.cartagenacorp.lm_oauth.service.RoleExternalService;
+import com.cartagenacorp.lm_oauth.service.UserIdentifierResolver;
+import com.cartagenacorp.lm_oauth.service.UserImportJobService;
 import com.cartagenacorp.lm_oauth.service.UserService;
 import com.cartagenacorp.lm_oauth.util.ConstantUtil;
 import com.cartagenacorp.lm_oauth.util.JwtTokenUtil;
 import com.cartagenacorp.lm_oauth.util.ResponseUtil;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -21,31 +27,37 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/oauth/")
 public class UserController {
 
-    private final UserRepository userRepository;
     private final UserService userService;
     private final JwtTokenUtil jwtTokenUtil;
     private final RefreshTokenService refreshTokenService;
     private final RoleExternalService roleExternalService;
-
-    public UserController(UserRepository userRepository, UserService userService, JwtTokenUtil jwtTokenUtil,
-                          RefreshTokenService refreshTokenService, RoleExternalService roleExternalService) {
-        this.userRepository = userRepository;
+    private final UserIdentifierResolver userIdentifierResolver;
+    private final UserImportJobService userImportJobService;
+    private final UserExportService userExportService;
+
+    public UserController(UserService userService, JwtTokenUtil jwtTokenUtil,
+                          RefreshTokenService refreshTokenService, RoleExternalService roleExternalService,
+                          UserIdentifierResolver userIdentifierResolver, UserImportJobService userImportJobService,
+                          UserExportService userExportService) {
         this.userService = userService;
         this.jwtTokenUtil = jwtTokenUtil;
         this.refreshTokenService = refreshTokenService;
         this.roleExternalService = roleExternalService;
+        this.userIdentifierResolver = userIdentifierResolver;
+        this.userImportJobService = userImportJobService;
+        this.userExportService = userExportService;
     }
 
     @GetMapping("/validate/{userId}")//se usa en lm-issues
@@ -57,8 +69,8 @@ public class UserController {
     @GetMapping("/token")
     public ResponseEntity<UUID> getUserIdFromToken() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        User user = (User) auth.getPrincipal();
-        return ResponseEntity.ok(user.getId());
+        AuthenticatedUser user = (AuthenticatedUser) auth.getPrincipal();
+        return ResponseEntity.ok(user.id());
     }
 
     @GetMapping("/validate/token")
@@ -139,6 +151,17 @@ public class UserController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping(value = "/users", params = "cursor")
+    @PreAuthorize("hasAnyAuthority('USER_READ')")
+    public ResponseEntity<CursorPageResponseDTO<UserDtoResponse>> scrollUsers(
+            @RequestParam(defaultValue = "") String search,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal
+    ) {
+        return ResponseEntity.ok(userService.scrollUsers(search, cursor, size, includeTotal));
+    }
+
     @GetMapping("/user/{id}")
     @PreAuthorize("hasAnyAuthority('USER_READ')")
     public ResponseEntity<?> getUserById(@PathVariable String id) {
@@ -171,30 +194,9 @@ public class UserController {
         }
 
         String decodedIdentifier = URLDecoder.decode(identifier, StandardCharsets.UTF_8);
-        String lower = decodedIdentifier.trim().toLowerCase();
-
-        Optional<User> userOpt = userRepository.findAll().stream()
-                .filter(user -> {
-                    String email = user.getEmail() != null ? user.getEmail().trim().toLowerCase() : "";
-                    String fullNameDot = (user.getFirstName() != null && user.getLastName() != null)
-                            ? (user.getFirstName().trim().toLowerCase() + "." + user.getLastName().trim().toLowerCase())
-                            : "";
-                    String fullNameSpace = (user.getFirstName() != null && user.getLastName() != null)
-                            ? (user.getFirstName().trim().toLowerCase() + " " + user.getLastName().trim().toLowerCase())
-                            : "";
-                    String firstName = user.getFirstName() != null ? user.getFirstName().trim().toLowerCase() : "";
-                    String lastName = user.getLastName() != null ? user.getLastName().trim().toLowerCase() : "";
-
-
-                    return lower.equals(email)
-                            || lower.equals(fullNameDot)
-                            || lower.equals(fullNameSpace)
-                            || lower.equals(firstName)
-                            || lower.equals(lastName);
-                })
-                .findFirst();
 
-        return userOpt.map(user -> ResponseEntity.ok(user.getId()))
+        return userIdentifierResolver.resolve(decodedIdentifier)
+                .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -237,6 +239,37 @@ public class UserController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping(value = "/users/organization", params = "cursor")
+    @PreAuthorize("hasAnyAuthority('ORGANIZATION_CONTROL')")
+    public ResponseEntity<CursorPageResponseDTO<UserDtoResponse>> scrollUsersByOrganization(
+            @RequestParam(defaultValue = "") String search,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @RequestParam String organizationId
+    ) {
+        UUID organizationIdUUID = UUID.fromString(organizationId);
+        return ResponseEntity.ok(userService.scrollUsersByOrganizationId(search, cursor, size, includeTotal, organizationIdUUID));
+    }
+
+    // Lo invoca lm-roles al cambiar los permisos de un rol; sin role invalida la organización y sin ninguno todo
+    @PostMapping("/permissions/evict")
+    @PreAuthorize("hasAnyAuthority('ORGANIZATION_CONTROL')")
+    public ResponseEntity<NotificationResponse> evictPermissions(
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) String organizationId
+    ) {
+        UUID organizationIdUUID = organizationId != null ? UUID.fromString(organizationId) : null;
+        if (role != null) {
+            roleExternalService.evictPermissions(role, organizationIdUUID);
+        } else if (organizationIdUUID != null) {
+            roleExternalService.evictPermissions(organizationIdUUID);
+        } else {
+            roleExternalService.evictAllPermissions();
+        }
+        return ResponseEntity.ok(ResponseUtil.success(ConstantUtil.Success.PERMISSIONS_EVICTED, HttpStatus.OK));
+    }
+
     @PatchMapping("/change-organization")
     @PreAuthorize("hasAnyAuthority('ORGANIZATION_CONTROL')")
     public ResponseEntity<UserDtoResponse> changeUserOrganization(@RequestBody UserDTO userDTO) {
@@ -244,12 +277,49 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/users/export")
+    @PreAuthorize("hasAnyAuthority('USER_READ')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "xlsx") String format) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        AuthenticatedUser user = (AuthenticatedUser) auth.getPrincipal();
+        UserExportService.Format exportFormat = UserExportService.Format.from(format);
+        UUID organizationId = user.organizationId();
+
+        StreamingResponseBody body = out -> userExportService.export(organizationId, exportFormat, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"users." + exportFormat.getExtension() + "\"")
+                .contentType(exportFormat.getMediaType())
+                .body(body);
+    }
+
     @PostMapping("/import")
     @PreAuthorize("hasAnyAuthority('USER_CREATE')")
-    public ResponseEntity<NotificationResponse> importUsersFromExcel(@RequestParam("file") MultipartFile file) {
-        userService.importUsers(file);
+    public ResponseEntity<UserImportJobDTO> importUsersFromExcel(@RequestParam("file") MultipartFile file) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        AuthenticatedUser user = (AuthenticatedUser) auth.getPrincipal();
         return ResponseEntity
-                .status(HttpStatus.OK)
-                .body(ResponseUtil.success(ConstantUtil.Success.USERS_IMPORT, HttpStatus.OK));
+                .status(HttpStatus.ACCEPTED)
+                .body(userImportJobService.submit(file, user.organizationId(), user.id()));
+    }
+
+    @GetMapping("/import/{jobId}")
+    @PreAuthorize("hasAnyAuthority('USER_CREATE')")
+    public ResponseEntity<UserImportJobDTO> getImportJob(@PathVariable UUID jobId) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        AuthenticatedUser user = (AuthenticatedUser) auth.getPrincipal();
+        return ResponseEntity.ok(userImportJobService.getJob(jobId, user.organizationId()));
+    }
+
+    @GetMapping("/import/{jobId}/report")
+    @PreAuthorize("hasAnyAuthority('USER_CREATE')")
+    public ResponseEntity<byte[]> getImportJobReport(@PathVariable UUID jobId) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        AuthenticatedUser user = (AuthenticatedUser) auth.getPrincipal();
+        byte[] report = userImportJobService.getReport(jobId, user.organizationId());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"import-" + jobId + ".csv\"")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(report);
     }
 }
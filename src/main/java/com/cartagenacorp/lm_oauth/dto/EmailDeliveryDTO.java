@@ -0,0 +1,19 @@
+package com.cartagenacorp.lm_oauth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmailDeliveryDTO {
+    private UUID id;
+    private String status;
+    private int attempts;
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+}
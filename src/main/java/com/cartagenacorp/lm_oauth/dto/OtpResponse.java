@@ -5,11 +5,14 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.UUID;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class OtpResponse {
     private String passphrase;
+    private UUID deliveryId;
     private NotificationResponse notificationResponse;
 }
@@ -0,0 +1,12 @@
+package com.cartagenacorp.lm_oauth.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface UserIdentifierView {
+    UUID getId();
+    String getEmail();
+    String getFirstName();
+    String getLastName();
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,25 @@
+package com.cartagenacorp.lm_oauth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserImportJobDTO {
+    private UUID id;
+    private String status;
+    private String fileName;
+    private long rowsProcessed;
+    private long rowsInserted;
+    private long rowsSkipped;
+    private long rowsFailed;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
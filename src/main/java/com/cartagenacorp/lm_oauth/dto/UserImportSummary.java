@@ -0,0 +1,13 @@
+package com.cartagenacorp.lm_oauth.dto;
+
+/**
+ * Contadores de una importación. {@code skipped} agrupa los emails ya registrados y los repetidos en el
+ * archivo; {@code failed} los emails inválidos y las filas de bloques que no se pudieron guardar.
+ */
+public record UserImportSummary(
+        long processed,
+        long inserted,
+        long skipped,
+        long failed
+) {
+}
@@ -0,0 +1,22 @@
+package com.cartagenacorp.lm_oauth.dto;
+
+import com.cartagenacorp.lm_oauth.entity.User;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Copia inmutable de los datos públicos de un {@link User}, sin contraseña ni googleId.
+ */
+public record UserSnapshot(
+        UUID id,
+        String email,
+        String firstName,
+        String lastName,
+        String picture,
+        String role,
+        UUID organizationId,
+        LocalDateTime createdAt
+) implements Serializable {
+}
@@ -0,0 +1,72 @@
+package com.cartagenacorp.lm_oauth.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Email pendiente de envío. Se escribe en la misma transacción que la operación que lo origina y lo
+ * entrega {@link com.cartagenacorp.lm_oauth.service.EmailOutboxDispatcher} una vez confirmada.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmailOutbox {
+
+    public enum Status {
+        PENDING,
+        SENDING,
+        SENT,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id")
+    private UUID id;
+
+    @Column(name = "dedup_key", nullable = false, unique = true)
+    private String dedupKey;
+
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+
+    @Column(name = "template", nullable = false)
+    private String template;
+
+    @Column(name = "variables", nullable = false, columnDefinition = "text")
+    private String variables;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "provider_message_id")
+    private String providerMessageId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
@@ -23,6 +23,11 @@ public class Otp {
     @Column(name = "code", nullable = false)
     private String code;
 
+    // Cifrado esperado del código con la clave derivada de la passphrase; AES/ECB es determinista, así que
+    // la validación compara el valor recibido directamente en la base de datos
+    @Column(name = "code_cipher")
+    private String codeCipher;
+
     @Column(name = "passphrase", nullable = false)
     private String passphrase;
 
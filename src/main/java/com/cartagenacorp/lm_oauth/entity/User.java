@@ -1,5 +1,6 @@
 package com.cartagenacorp.lm_oauth.entity;
 
+import com.cartagenacorp.lm_oauth.event.UserEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,7 +11,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_org_created_id", columnList = "organization_id, created_at DESC, id DESC")
+})
+@EntityListeners(UserEntityListener.class)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
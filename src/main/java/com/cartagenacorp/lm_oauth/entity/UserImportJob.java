@@ -0,0 +1,73 @@
+package com.cartagenacorp.lm_oauth.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "user_import_job", indexes = {
+        @Index(name = "idx_user_import_job_org_status", columnList = "organization_id, status")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserImportJob {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "organization_id", nullable = false)
+    private UUID organizationId;
+
+    @Column(name = "requested_by")
+    private UUID requestedBy;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status;
+
+    @Column(name = "rows_processed", nullable = false)
+    private long rowsProcessed;
+
+    @Column(name = "rows_inserted", nullable = false)
+    private long rowsInserted;
+
+    @Column(name = "rows_skipped", nullable = false)
+    private long rowsSkipped;
+
+    @Column(name = "rows_failed", nullable = false)
+    private long rowsFailed;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // Lo renueva periódicamente el nodo que tiene el trabajo en cola o en ejecución
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+}
@@ -0,0 +1,27 @@
+package com.cartagenacorp.lm_oauth.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Reporte CSV fila a fila de una importación. Va en su propia tabla para que consultar el estado del
+ * trabajo no cargue el contenido.
+ */
+@Entity
+@Table(name = "user_import_job_report")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserImportJobReport {
+
+    @Id
+    @Column(name = "job_id")
+    private UUID jobId;
+
+    @Column(name = "content", nullable = false, columnDefinition = "bytea")
+    private byte[] content;
+}
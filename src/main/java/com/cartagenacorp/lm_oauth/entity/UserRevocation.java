@@ -0,0 +1,30 @@
+package com.cartagenacorp.lm_oauth.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Última revocación de los tokens de un usuario. Va en su propia tabla y no en {@code users} para que
+ * sobreviva a la eliminación del usuario; las filas se purgan cuando ya no queda ningún token que rechazar.
+ */
+@Entity
+@Table(name = "user_revocation", indexes = {
+        @Index(name = "idx_user_revocation_revoked_at", columnList = "revoked_at")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserRevocation {
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+}
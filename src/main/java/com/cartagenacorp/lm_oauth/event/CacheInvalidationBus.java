@@ -0,0 +1,258 @@
+package com.cartagenacorp.lm_oauth.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Bus de invalidación de caches entre réplicas sobre LISTEN/NOTIFY de Postgres.
+ * <p>
+ * Cada nodo mantiene una conexión dedicada en LISTEN, abierta aparte del pool para no quitarle una
+ * conexión de forma permanente, y reemite como evento de aplicación los {@link CacheInvalidationMessage} de
+ * los demás nodos. NOTIFY no guarda mensajes para oyentes desconectados, así que al reconectar se publica
+ * localmente {@link CacheInvalidationMessage#all()}.
+ * <p>
+ * Dentro de una transacción el NOTIFY se envía en ella y Postgres lo entrega con el commit, de modo que un
+ * cambio confirmado nunca se queda sin aviso. Fuera de una transacción se entrega a un hilo emisor que usa
+ * una conexión del pool y reintenta mientras la base de datos no responde.
+ */
+@Component
+public class CacheInvalidationBus implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private static final int MAX_PENDING = 10_000;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final String channel;
+    private final Duration pollTimeout;
+    private final Duration reconnectDelay;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final BlockingQueue<String> pending = new LinkedBlockingQueue<>(MAX_PENDING);
+
+    private volatile boolean running = false;
+    private Thread listenerThread;
+    private Thread senderThread;
+
+    public CacheInvalidationBus(DataSourceProperties dataSourceProperties,
+                                JdbcTemplate jdbcTemplate,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${app.cache.invalidation.enabled:true}") boolean enabled,
+                                @Value("${app.cache.invalidation.channel:lm_oauth_cache}") String channel,
+                                @Value("${app.cache.invalidation.poll-timeout:PT0.5S}") Duration pollTimeout,
+                                @Value("${app.cache.invalidation.reconnect-delay:PT5S}") Duration reconnectDelay) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("app.cache.invalidation.channel no es un identificador válido: " + channel);
+        }
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.pollTimeout = pollTimeout;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    /**
+     * Envía el mensaje al resto de nodos. El nodo que llama ya debe haber actualizado sus propias caches.
+     * No debe llamarse desde un listener AFTER_COMMIT: la transacción sigue registrada pero ya no confirma nada.
+     */
+    public void publish(CacheInvalidationMessage message) {
+        if (!enabled) {
+            return;
+        }
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(message.withOrigin(nodeId));
+        } catch (JsonProcessingException e) {
+            logger.error("[CacheInvalidationBus] No se pudo serializar el mensaje {}: {}", message, e.getMessage());
+            return;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Misma conexión que la transacción del llamador: el NOTIFY sale con el commit o no sale
+            notify(payload);
+            return;
+        }
+        enqueue(payload);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        publish(CacheInvalidationMessage.user(event.userId()));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+        senderThread = new Thread(this::send, "cache-invalidation-sender");
+        senderThread.setDaemon(true);
+        senderThread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            listenerThread = null;
+        }
+        if (senderThread != null) {
+            senderThread.interrupt();
+            senderThread = null;
+        }
+        if (!pending.isEmpty()) {
+            logger.warn("[CacheInvalidationBus] {} invalidaciones sin enviar al detener el bus", pending.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = openListenConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                logger.info("[CacheInvalidationBus] Escuchando el canal {} como nodo {}", channel, nodeId);
+
+                if (connectedBefore) {
+                    // Lo notificado mientras la conexión estuvo caída se perdió: se vacían las caches locales
+                    logger.warn("[CacheInvalidationBus] Reconectado, invalidando todas las caches locales");
+                    eventPublisher.publishEvent(CacheInvalidationMessage.all());
+                }
+                connectedBefore = true;
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeout.toMillis());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                logger.error("[CacheInvalidationBus] Conexión de escucha perdida: {}", e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                logger.error("[CacheInvalidationBus] Error inesperado en el oyente: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        try {
+            CacheInvalidationMessage message = objectMapper.readValue(payload, CacheInvalidationMessage.class);
+            if (nodeId.equals(message.origin())) {
+                return;
+            }
+            eventPublisher.publishEvent(message);
+        } catch (JsonProcessingException e) {
+            logger.warn("[CacheInvalidationBus] Mensaje ignorado, no se pudo leer: {}", payload);
+        } catch (RuntimeException e) {
+            logger.error("[CacheInvalidationBus] Error aplicando la invalidación {}: {}", payload, e.getMessage());
+        }
+    }
+
+    private void send() {
+        while (running) {
+            String payload;
+            try {
+                payload = pending.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            while (running) {
+                try {
+                    notify(payload);
+                    break;
+                } catch (DataAccessException e) {
+                    logger.warn("[CacheInvalidationBus] NOTIFY fallido, se reintentará: {}", e.getMessage());
+                    try {
+                        Thread.sleep(reconnectDelay.toMillis());
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void enqueue(String payload) {
+        if (pending.offer(payload)) {
+            return;
+        }
+        // Demasiados mensajes sin enviar: se sustituyen por una única invalidación total
+        pending.clear();
+        try {
+            pending.offer(objectMapper.writeValueAsString(CacheInvalidationMessage.all().withOrigin(nodeId)));
+        } catch (JsonProcessingException e) {
+            logger.error("[CacheInvalidationBus] No se pudo serializar la invalidación total: {}", e.getMessage());
+        }
+    }
+
+    private void notify(String payload) {
+        jdbcTemplate.execute("SELECT pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) statement -> {
+            statement.setString(1, channel);
+            statement.setString(2, payload);
+            return statement.execute();
+        });
+    }
+
+    // Fuera del pool: LISTEN retiene la conexión mientras el nodo está en marcha
+    private Connection openListenConnection() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+}
@@ -0,0 +1,61 @@
+package com.cartagenacorp.lm_oauth.event;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Mensaje que viaja por el canal NOTIFY entre réplicas. Cada nodo lo aplica a sus caches locales al
+ * recibirlo; {@code origin} identifica al nodo emisor, que ya aplicó el cambio y lo ignora.
+ */
+public record CacheInvalidationMessage(
+        Type type,
+        UUID userId,
+        String role,
+        UUID organizationId,
+        Instant revokedAt,
+        String origin
+) {
+
+    public enum Type {
+        USER,
+        USER_INDEX,
+        REVOCATION,
+        PERMISSIONS,
+        OTP_FUNCTIONALITIES,
+        ALL
+    }
+
+    public static CacheInvalidationMessage user(UUID userId) {
+        return new CacheInvalidationMessage(Type.USER, userId, null, null, null, null);
+    }
+
+    /**
+     * Altas masivas hechas sin JPA: el índice de identificadores debe reconstruirse.
+     */
+    public static CacheInvalidationMessage userIndex() {
+        return new CacheInvalidationMessage(Type.USER_INDEX, null, null, null, null, null);
+    }
+
+    public static CacheInvalidationMessage revocation(UUID userId, Instant revokedAt) {
+        return new CacheInvalidationMessage(Type.REVOCATION, userId, null, null, revokedAt, null);
+    }
+
+    /**
+     * Con {@code role} nulo se invalidan todos los roles de la organización; con ambos nulos, todos los permisos.
+     */
+    public static CacheInvalidationMessage permissions(String role, UUID organizationId) {
+        return new CacheInvalidationMessage(Type.PERMISSIONS, null, role, organizationId, null, null);
+    }
+
+    public static CacheInvalidationMessage otpFunctionalities() {
+        return new CacheInvalidationMessage(Type.OTP_FUNCTIONALITIES, null, null, null, null, null);
+    }
+
+    public static CacheInvalidationMessage all() {
+        return new CacheInvalidationMessage(Type.ALL, null, null, null, null, null);
+    }
+
+    CacheInvalidationMessage withOrigin(String origin) {
+        return new CacheInvalidationMessage(type, userId, role, organizationId, revokedAt, origin);
+    }
+}
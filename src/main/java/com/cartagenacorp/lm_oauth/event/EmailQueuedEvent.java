@@ -0,0 +1,6 @@
+package com.cartagenacorp.lm_oauth.event;
+
+import java.util.UUID;
+
+public record EmailQueuedEvent(UUID outboxId) {
+}
@@ -0,0 +1,35 @@
+package com.cartagenacorp.lm_oauth.event;
+
+import com.cartagenacorp.lm_oauth.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record UserChangedEvent(
+        Type type,
+        UUID userId,
+        String email,
+        String firstName,
+        String lastName,
+        UUID organizationId,
+        LocalDateTime createdAt
+) {
+
+    public enum Type {
+        SAVED,
+        DELETED
+    }
+
+    public static UserChangedEvent saved(User user) {
+        return of(Type.SAVED, user);
+    }
+
+    public static UserChangedEvent deleted(User user) {
+        return of(Type.DELETED, user);
+    }
+
+    private static UserChangedEvent of(Type type, User user) {
+        return new UserChangedEvent(type, user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                user.getOrganizationId(), user.getCreatedAt());
+    }
+}
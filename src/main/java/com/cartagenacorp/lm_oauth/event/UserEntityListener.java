@@ -0,0 +1,32 @@
+package com.cartagenacorp.lm_oauth.event;
+
+import com.cartagenacorp.lm_oauth.entity.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Publica un {@link UserChangedEvent} por cada escritura de {@link User} hecha a través de JPA, para que
+ * los índices y caches en memoria se actualicen sin que cada servicio tenga que acordarse de hacerlo.
+ * Hibernate lo instancia a través del contenedor de Spring, por eso puede recibir dependencias.
+ */
+public class UserEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(User user) {
+        eventPublisher.publishEvent(UserChangedEvent.saved(user));
+    }
+
+    @PostRemove
+    public void onRemove(User user) {
+        eventPublisher.publishEvent(UserChangedEvent.deleted(user));
+    }
+}
@@ -0,0 +1,10 @@
+package com.cartagenacorp.lm_oauth.mapper;
+
+import com.cartagenacorp.lm_oauth.dto.UserImportJobDTO;
+import com.cartagenacorp.lm_oauth.entity.UserImportJob;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface UserImportJobMapper {
+    UserImportJobDTO toDto(UserImportJob job);
+}
@@ -3,6 +3,7 @@ package com.cartagenacorp.lm_oauth.mapper;
 import com.cartagenacorp.lm_oauth.dto.UserDTO;
 import com.cartagenacorp.lm_oauth.entity.User;
 import com.cartagenacorp.lm_oauth.dto.UserDtoResponse;
+import com.cartagenacorp.lm_oauth.dto.UserSnapshot;
 import org.mapstruct.BeanMapping;
 import org.mapstruct.Mapper;
 import org.mapstruct.MappingTarget;
@@ -18,6 +19,10 @@ public interface UserMapper {
 
     UserDtoResponse toDto(User user);
 
+    UserDtoResponse toDto(UserSnapshot userSnapshot);
+
+    UserSnapshot toSnapshot(User user);
+
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     User partialUpdate(UserDtoResponse userDtoResponse, @MappingTarget User user);
 }
@@ -0,0 +1,51 @@
+package com.cartagenacorp.lm_oauth.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Creación de índices con CREATE INDEX CONCURRENTLY. Si una construcción concurrente falla (lock_timeout,
+ * cancelación, caída del nodo) deja el índice marcado como INVALID: no se usa en las consultas pero sí se
+ * mantiene en cada escritura, y {@code IF NOT EXISTS} lo daría por bueno para siempre. Aquí se detecta y se
+ * reconstruye.
+ * <p>
+ * Quien llame debe tener el advisory lock correspondiente, para que un índice a medio construir por otro nodo
+ * (que también figura como INVALID) no se confunda con uno fallido.
+ */
+final class ConcurrentIndexes {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentIndexes.class);
+
+    private ConcurrentIndexes() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Crea el índice si no existe o lo reconstruye si quedó inválido. Devuelve si el índice es utilizable.
+     */
+    static boolean ensure(JdbcTemplate jdbc, String indexName, String createSql) {
+        Boolean valid = isValid(jdbc, indexName);
+        if (Boolean.TRUE.equals(valid)) {
+            return true;
+        }
+        if (valid != null) {
+            logger.warn("[ConcurrentIndexes] Índice {} inválido por una construcción interrumpida, se reconstruye", indexName);
+            jdbc.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+        }
+        jdbc.execute(createSql);
+        return Boolean.TRUE.equals(isValid(jdbc, indexName));
+    }
+
+    // null si el índice no existe
+    private static Boolean isValid(JdbcTemplate jdbc, String indexName) {
+        List<Boolean> valid = jdbc.queryForList("""
+                SELECT i.indisvalid AND i.indisready FROM pg_index i
+                JOIN pg_class c ON c.oid = i.indexrelid
+                WHERE c.relname = ? AND pg_table_is_visible(c.oid)
+                """, Boolean.class, indexName);
+        return valid.isEmpty() ? null : valid.get(0);
+    }
+}
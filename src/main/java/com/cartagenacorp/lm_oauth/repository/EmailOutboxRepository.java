@@ -0,0 +1,115 @@
+package com.cartagenacorp.lm_oauth.repository;
+
+import com.cartagenacorp.lm_oauth.entity.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, UUID> {
+
+    Optional<EmailOutbox> findByDedupKey(String dedupKey);
+
+    // ON CONFLICT resuelve en la base de datos la carrera entre dos inserciones con la misma clave, que con
+    // buscar-y-guardar acababa en una violación de la restricción única
+    @Modifying
+    @Query(value = """
+        INSERT INTO email_outbox (id, dedup_key, recipient, template, variables, status, attempts, next_attempt_at, created_at)
+        VALUES (:id, :dedupKey, :recipient, :template, :variables, 'PENDING', 0, :createdAt, :createdAt)
+        ON CONFLICT (dedup_key) DO NOTHING
+    """, nativeQuery = true)
+    int insertIfAbsent(UUID id, String dedupKey, String recipient, String template, String variables, LocalDateTime createdAt);
+
+    // SKIP LOCKED reparte las filas entre nodos sin que dos despachadores tomen la misma; un envío
+    // que se queda a medias vuelve a ser elegible cuando vence locked_until
+    @Transactional
+    @Query(value = """
+        UPDATE email_outbox
+        SET status = 'SENDING', attempts = attempts + 1, locked_until = :lockedUntil
+        WHERE id IN (
+            SELECT id FROM email_outbox
+            WHERE status IN ('PENDING', 'SENDING')
+              AND next_attempt_at <= :now
+              AND (locked_until IS NULL OR locked_until < :now)
+            ORDER BY next_attempt_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+        )
+        RETURNING *
+    """, nativeQuery = true)
+    List<EmailOutbox> claimDue(LocalDateTime now, LocalDateTime lockedUntil, int limit);
+
+    @Transactional
+    @Query(value = """
+        UPDATE email_outbox
+        SET status = 'SENDING', attempts = attempts + 1, locked_until = :lockedUntil
+        WHERE id IN (
+            SELECT id FROM email_outbox
+            WHERE id = :id
+              AND status IN ('PENDING', 'SENDING')
+              AND next_attempt_at <= :now
+              AND (locked_until IS NULL OR locked_until < :now)
+            FOR UPDATE SKIP LOCKED
+        )
+        RETURNING *
+    """, nativeQuery = true)
+    List<EmailOutbox> claim(UUID id, LocalDateTime now, LocalDateTime lockedUntil);
+
+    // Los mark* solo actúan sobre el intento que se reclamó: si el lease venció y otro nodo reclamó la fila,
+    // el resultado tardío del intento anterior no puede pisar el estado del nuevo. Los estados finales vacían
+    // las variables, que pueden llevar la OTP en claro
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE EmailOutbox e
+        SET e.status = com.cartagenacorp.lm_oauth.entity.EmailOutbox.Status.SENT, e.sentAt = :sentAt,
+            e.providerMessageId = :providerMessageId, e.lockedUntil = null, e.lastError = null, e.variables = '{}'
+        WHERE e.id = :id
+          AND e.status = com.cartagenacorp.lm_oauth.entity.EmailOutbox.Status.SENDING
+          AND e.attempts = :claimedAttempts
+    """)
+    int markSent(UUID id, int claimedAttempts, String providerMessageId, LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE EmailOutbox e
+        SET e.status = com.cartagenacorp.lm_oauth.entity.EmailOutbox.Status.PENDING, e.nextAttemptAt = :nextAttemptAt,
+            e.lockedUntil = null, e.lastError = :error
+        WHERE e.id = :id
+          AND e.status = com.cartagenacorp.lm_oauth.entity.EmailOutbox.Status.SENDING
+          AND e.attempts = :claimedAttempts
+    """)
+    int markRetry(UUID id, int claimedAttempts, LocalDateTime nextAttemptAt, String error);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE EmailOutbox e
+        SET e.status = com.cartagenacorp.lm_oauth.entity.EmailOutbox.Status.FAILED, e.lockedUntil = null, e.lastError = :error,
+            e.variables = '{}'
+        WHERE e.id = :id
+          AND e.status = com.cartagenacorp.lm_oauth.entity.EmailOutbox.Status.SENDING
+          AND e.attempts = :claimedAttempts
+    """)
+    int markFailed(UUID id, int claimedAttempts, String error);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+        DELETE FROM email_outbox
+        WHERE id IN (
+            SELECT id FROM email_outbox
+            WHERE status IN ('SENT', 'FAILED') AND created_at < :cutoff
+            LIMIT :limit
+        )
+    """, nativeQuery = true)
+    int deleteFinishedBefore(LocalDateTime cutoff, int limit);
+}
@@ -0,0 +1,259 @@
+package com.cartagenacorp.lm_oauth.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * DDL y borrados de mantenimiento de la tabla {@code otp}. Todo se ejecuta en una única conexión que
+ * mantiene un advisory lock, para que un solo nodo haga el mantenimiento a la vez, y con
+ * {@code lock_timeout} para no quedarse esperando (ni hacer esperar) detrás del tráfico de validación.
+ */
+@Repository
+public class OtpPartitionRepository {
+
+    // Clave del advisory lock de mantenimiento de OTP
+    private static final long MAINTENANCE_LOCK = 0x6f7470L;
+
+    public static final String LEGACY_TABLE = "otp_legacy";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OtpPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Ejecuta el trabajo si este nodo obtiene el lock de mantenimiento; si lo tiene otro nodo devuelve false.
+     */
+    public boolean runExclusive(Duration lockTimeout, Consumer<Session> work) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            if (!Boolean.TRUE.equals(session.queryForObject("SELECT pg_try_advisory_lock(?)", Boolean.class, MAINTENANCE_LOCK))) {
+                return false;
+            }
+            try {
+                session.execute("SET lock_timeout = '" + lockTimeout.toMillis() + "ms'");
+                work.accept(new Session(connection, session));
+                return true;
+            } finally {
+                session.execute("RESET lock_timeout");
+                session.queryForObject("SELECT pg_advisory_unlock(?)", Boolean.class, MAINTENANCE_LOCK);
+            }
+        }));
+    }
+
+    /**
+     * Último día cubierto por una partición de {@code otp}, o vacío si la tabla no está particionada. No toma
+     * el lock de mantenimiento: solo lee el catálogo.
+     */
+    public Optional<LocalDate> lastPartitionDay() {
+        List<String> names = jdbcTemplate.queryForList("""
+                SELECT max(c.relname) FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                WHERE p.relname = 'otp' AND p.relkind = 'p' AND pg_table_is_visible(p.oid)
+                  AND c.relname ~ '^otp_p[0-9]{8}$' AND NOT i.inhdetachpending
+                """, String.class);
+        return names.stream()
+                .filter(Objects::nonNull)
+                .findFirst()
+                .map(name -> LocalDate.parse(name.substring("otp_p".length()), PARTITION_SUFFIX));
+    }
+
+    public static class Session {
+
+        private final Connection connection;
+        private final JdbcTemplate jdbc;
+
+        private Session(Connection connection, JdbcTemplate jdbc) {
+            this.connection = connection;
+            this.jdbc = jdbc;
+        }
+
+        public boolean isPartitioned() {
+            return Boolean.TRUE.equals(jdbc.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_class WHERE relname = 'otp' AND relkind = 'p' AND pg_table_is_visible(oid))",
+                    Boolean.class));
+        }
+
+        public boolean tableExists(String table) {
+            return jdbc.queryForObject("SELECT to_regclass(?)", String.class, table) != null;
+        }
+
+        /**
+         * Convierte {@code otp} en una tabla particionada por rango diario de {@code created}. La tabla actual
+         * se renombra a {@link #LEGACY_TABLE} y solo se copian las OTP activas desde {@code firstDay}; el
+         * histórico se queda allí hasta que la retención lo elimine. Solo se bloquea {@code otp} el tiempo
+         * del renombrado y la copia de las filas activas.
+         */
+        public void migrateToPartitioned(LocalDate firstDay, LocalDate lastDay) {
+            inTransaction(() -> {
+                jdbc.execute("LOCK TABLE otp IN ACCESS EXCLUSIVE MODE");
+                jdbc.execute("ALTER TABLE otp RENAME TO " + LEGACY_TABLE);
+                jdbc.execute("CREATE SEQUENCE IF NOT EXISTS otp_partitioned_id_seq");
+                jdbc.execute("SELECT setval('otp_partitioned_id_seq', coalesce((SELECT max(id) FROM " + LEGACY_TABLE + "), 0) + 1, false)");
+                jdbc.execute("CREATE TABLE otp (LIKE " + LEGACY_TABLE + " INCLUDING DEFAULTS) PARTITION BY RANGE (created)");
+                jdbc.execute("ALTER TABLE otp ALTER COLUMN id SET DEFAULT nextval('otp_partitioned_id_seq')");
+                jdbc.execute("ALTER SEQUENCE otp_partitioned_id_seq OWNED BY otp.id");
+                // La clave primaria de una tabla particionada debe incluir la columna de partición
+                jdbc.execute("ALTER TABLE otp ADD CONSTRAINT otp_partitioned_pkey PRIMARY KEY (id, created)");
+                jdbc.execute("ALTER TABLE otp ADD CONSTRAINT fk_otp_partitioned_functionality FOREIGN KEY (functionality_id) REFERENCES otp_functionality (id)");
+                jdbc.execute("CREATE INDEX idx_otp_partitioned_hash_active_created ON otp (hash_object, active, created)");
+                jdbc.execute("CREATE INDEX idx_otp_partitioned_email_active ON otp (email, active)");
+                for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+                    jdbc.execute("CREATE TABLE " + partitionName(day) + " PARTITION OF otp " + bounds(day));
+                }
+                jdbc.update("INSERT INTO otp SELECT * FROM " + LEGACY_TABLE + " WHERE active = true AND created >= ?",
+                        Timestamp.valueOf(firstDay.atStartOfDay()));
+            });
+        }
+
+        /**
+         * Índices de la tabla sin particionar. CONCURRENTLY no bloquea las escrituras mientras se construyen; los
+         * que quedaron inválidos por una construcción fallida se reconstruyen.
+         */
+        public void createIndexesConcurrently(String table) {
+            createIndexConcurrently(table, "hash_active_created", "hash_object, active, created");
+            createIndexConcurrently(table, "email_active", "email, active");
+            createIndexConcurrently(table, "created", "created");
+        }
+
+        private void createIndexConcurrently(String table, String suffix, String columns) {
+            String name = "idx_" + table + "_" + suffix;
+            ConcurrentIndexes.ensure(jdbc, name, "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + table + " (" + columns + ")");
+        }
+
+        /**
+         * Particiones adjuntas a {@code otp}. No incluye las que quedaron a medio separar por un DETACH
+         * CONCURRENTLY interrumpido; esas las devuelve {@link #pendingDetachDays()}.
+         */
+        public List<LocalDate> partitionDays() {
+            return partitions("NOT i.inhdetachpending");
+        }
+
+        public List<LocalDate> pendingDetachDays() {
+            return partitions("i.inhdetachpending");
+        }
+
+        /**
+         * Particiones ya separadas de {@code otp} cuyo DROP no llegó a ejecutarse.
+         */
+        public List<LocalDate> orphanPartitionDays() {
+            return toDays(jdbc.queryForList("""
+                    SELECT c.relname FROM pg_class c
+                    WHERE c.relkind = 'r' AND c.relname ~ '^otp_p[0-9]{8}$' AND pg_table_is_visible(c.oid)
+                      AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid)
+                    """, String.class));
+        }
+
+        /**
+         * Crea la partición aparte y la adjunta con ATTACH PARTITION, que solo toma SHARE UPDATE EXCLUSIVE
+         * sobre {@code otp}. El CHECK previo evita que ATTACH recorra la partición para validarla.
+         */
+        public void createPartition(LocalDate day) {
+            String name = partitionName(day);
+            String from = day.toString();
+            String to = day.plusDays(1).toString();
+            jdbc.execute("CREATE TABLE IF NOT EXISTS " + name + " (LIKE otp INCLUDING DEFAULTS)");
+            jdbc.execute("ALTER TABLE " + name + " DROP CONSTRAINT IF EXISTS " + name + "_range");
+            jdbc.execute("ALTER TABLE " + name + " ADD CONSTRAINT " + name + "_range CHECK (created >= '" + from + "' AND created < '" + to + "')");
+            jdbc.execute("ALTER TABLE otp ATTACH PARTITION " + name + " " + bounds(day));
+            jdbc.execute("ALTER TABLE " + name + " DROP CONSTRAINT " + name + "_range");
+        }
+
+        /**
+         * Separa la partición sin bloquear las consultas sobre {@code otp} y la elimina.
+         */
+        public void dropPartition(LocalDate day) {
+            String name = partitionName(day);
+            jdbc.execute("ALTER TABLE otp DETACH PARTITION " + name + " CONCURRENTLY");
+            jdbc.execute("DROP TABLE " + name);
+        }
+
+        /**
+         * Completa un DETACH CONCURRENTLY que falló en su segunda fase (p. ej. por lock_timeout) y elimina la
+         * partición. Mientras siga pendiente, cualquier otro DETACH sobre {@code otp} falla.
+         */
+        public void finalizeDetach(LocalDate day) {
+            String name = partitionName(day);
+            jdbc.execute("ALTER TABLE otp DETACH PARTITION " + name + " FINALIZE");
+            jdbc.execute("DROP TABLE " + name);
+        }
+
+        public void dropDetachedPartition(LocalDate day) {
+            jdbc.execute("DROP TABLE IF EXISTS " + partitionName(day));
+        }
+
+        /**
+         * Borra un lote de filas anteriores a {@code cutoff}. SKIP LOCKED salta las filas que esté usando una validación.
+         */
+        public int deleteOlderThan(String table, LocalDateTime cutoff, int limit) {
+            return jdbc.update("DELETE FROM " + table + " WHERE id IN (SELECT id FROM " + table
+                    + " WHERE created < ? ORDER BY created LIMIT ? FOR UPDATE SKIP LOCKED)", Timestamp.valueOf(cutoff), limit);
+        }
+
+        public boolean isEmpty(String table) {
+            return !Boolean.TRUE.equals(jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM " + table + ")", Boolean.class));
+        }
+
+        public void dropTable(String table) {
+            jdbc.execute("DROP TABLE IF EXISTS " + table);
+        }
+
+        private void inTransaction(Runnable work) {
+            try {
+                connection.setAutoCommit(false);
+                try {
+                    work.run();
+                    connection.commit();
+                } catch (RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Error en la transacción de mantenimiento de OTP", e);
+            }
+        }
+
+        private List<LocalDate> partitions(String condition) {
+            return toDays(jdbc.queryForList("""
+                    SELECT c.relname FROM pg_inherits i
+                    JOIN pg_class c ON c.oid = i.inhrelid
+                    JOIN pg_class p ON p.oid = i.inhparent
+                    WHERE p.relname = 'otp' AND c.relname ~ '^otp_p[0-9]{8}$' AND """ + condition, String.class));
+        }
+
+        private static List<LocalDate> toDays(List<String> names) {
+            return names.stream()
+                    .map(name -> LocalDate.parse(name.substring("otp_p".length()), PARTITION_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        private static String partitionName(LocalDate day) {
+            return "otp_p" + Objects.requireNonNull(day).format(PARTITION_SUFFIX);
+        }
+
+        private static String bounds(LocalDate day) {
+            return "FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')";
+        }
+    }
+}
@@ -5,7 +5,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -16,6 +18,63 @@ public interface OtpRepository extends JpaRepository<Otp, Long> {
             Boolean active
     );
 
+    /**
+     * Consume un intento sobre la OTP activa más reciente en una sola sentencia: incrementa el contador,
+     * desactiva la OTP si se acierta, se agotan los intentos o ha expirado, y devuelve el resultado
+     * (VALID, INVALID, ATTEMPTS_EXCEEDED o EXPIRED). El bloqueo de fila del UPDATE serializa los intentos
+     * concurrentes, que vuelven a evaluar {@code active} y {@code attempt} tras el anterior. Filtrar también
+     * por {@code created} permite descartar particiones en ejecución cuando la tabla está particionada.
+     * Las OTP anteriores a {@code code_cipher} (NULL) no se pueden comprobar: se desactivan como INVALID y
+     * el usuario debe generar una nueva.
+     */
+    @Transactional
+    @Query(value = """
+        UPDATE otp o
+        SET attempt = o.attempt + 1,
+            active = NOT (o.attempt + 1 >= f.attempt_limit
+                OR o.created + make_interval(secs => f.time_to_live) < :now
+                OR o.code_cipher IS NULL
+                OR COALESCE(o.code_cipher = :codeCipher, false))
+        FROM otp_functionality f
+        WHERE (o.id, o.created) = (
+                SELECT id, created FROM otp
+                WHERE hash_object = :hashObject AND active = true
+                ORDER BY created DESC
+                LIMIT 1
+            )
+          AND o.active = true
+          AND f.id = o.functionality_id
+          AND f.name = :functionality
+        RETURNING CASE
+            WHEN o.attempt >= f.attempt_limit THEN 'ATTEMPTS_EXCEEDED'
+            WHEN o.created + make_interval(secs => f.time_to_live) < :now THEN 'EXPIRED'
+            WHEN COALESCE(o.code_cipher = :codeCipher, false) THEN 'VALID'
+            ELSE 'INVALID'
+        END
+    """, nativeQuery = true)
+    Optional<String> consumeAttempt(String hashObject, String functionality, String codeCipher, LocalDateTime now);
+
+    /**
+     * Mismas condiciones que el caso VALID de {@link #consumeAttempt}, pero solo lectura.
+     */
+    @Query(value = """
+        SELECT EXISTS (
+            SELECT 1 FROM otp o
+            JOIN otp_functionality f ON f.id = o.functionality_id
+            WHERE (o.id, o.created) = (
+                    SELECT id, created FROM otp
+                    WHERE hash_object = :hashObject AND active = true
+                    ORDER BY created DESC
+                    LIMIT 1
+                )
+              AND f.name = :functionality
+              AND o.attempt + 1 < f.attempt_limit
+              AND o.created + make_interval(secs => f.time_to_live) >= :now
+              AND o.code_cipher = :codeCipher
+        )
+    """, nativeQuery = true)
+    boolean isRedeemable(String hashObject, String functionality, String codeCipher, LocalDateTime now);
+
     @Modifying
     @Query("UPDATE Otp o SET o.active = false WHERE o.email = ?1 AND o.active = true")
     void deactivateAllActiveOtps(
@@ -0,0 +1,100 @@
+package com.cartagenacorp.lm_oauth.repository;
+
+import com.cartagenacorp.lm_oauth.dto.UserDtoResponse;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Operaciones masivas sobre usuarios por JDBC. No pasa por JPA, así que las inserciones no disparan el
+ * {@link com.cartagenacorp.lm_oauth.event.UserEntityListener}: el llamador se encarga de invalidar caches.
+ */
+@Repository
+public class UserBulkRepository {
+
+    private static final String INSERT_IGNORING_EXISTING = """
+            INSERT INTO users (id, email, organization_id, created_at, registered)
+            VALUES (?, ?, ?, ?, false)
+            ON CONFLICT (email) DO NOTHING
+            """;
+
+    private static final String SELECT_BY_ORGANIZATION = """
+            SELECT id, first_name, last_name, picture, email, role, created_at
+            FROM users
+            WHERE organization_id = ?
+            ORDER BY created_at, id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Recorre los usuarios de la organización con un cursor de sólo avance: el driver trae las filas de
+     * {@code fetchSize} en {@code fetchSize}. Postgres sólo usa cursor dentro de una transacción, así que
+     * debe llamarse desde una.
+     */
+    public void streamByOrganization(UUID organizationId, int fetchSize, Consumer<UserDtoResponse> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_BY_ORGANIZATION,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setObject(1, organizationId);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            consumer.accept(new UserDtoResponse(
+                    rs.getObject("id", UUID.class),
+                    rs.getString("first_name"),
+                    rs.getString("last_name"),
+                    rs.getString("picture"),
+                    rs.getString("email"),
+                    rs.getString("role"),
+                    createdAt != null ? createdAt.toLocalDateTime() : null
+            ));
+        });
+    }
+
+    public record NewUser(UUID id, String email, UUID organizationId, LocalDateTime createdAt) {
+    }
+
+    /**
+     * Inserta los usuarios en un solo batch. Devuelve, por posición, si la fila se insertó o si el email
+     * ya existía.
+     */
+    public boolean[] insertIgnoringExisting(List<NewUser> users) {
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_IGNORING_EXISTING, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                NewUser user = users.get(i);
+                ps.setObject(1, user.id());
+                ps.setString(2, user.email());
+                ps.setObject(3, user.organizationId());
+                ps.setTimestamp(4, Timestamp.valueOf(user.createdAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return users.size();
+            }
+        });
+        boolean[] inserted = new boolean[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            inserted[i] = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,11 @@
+package com.cartagenacorp.lm_oauth.repository;
+
+import com.cartagenacorp.lm_oauth.entity.UserImportJobReport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface UserImportJobReportRepository extends JpaRepository<UserImportJobReport, UUID> {
+}
@@ -0,0 +1,67 @@
+package com.cartagenacorp.lm_oauth.repository;
+
+import com.cartagenacorp.lm_oauth.entity.UserImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UserImportJobRepository extends JpaRepository<UserImportJob, UUID> {
+
+    Optional<UserImportJob> findByIdAndOrganizationId(UUID id, UUID organizationId);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE UserImportJob j
+        SET j.rowsProcessed = :processed, j.rowsInserted = :inserted, j.rowsSkipped = :skipped, j.rowsFailed = :failed
+        WHERE j.id = :id
+    """)
+    void updateProgress(UUID id, long processed, long inserted, long skipped, long failed);
+
+    // Solo arranca un trabajo en cola: si el barrido de abandonados ya lo marcó como fallido no se reabre
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE UserImportJob j
+        SET j.status = com.cartagenacorp.lm_oauth.entity.UserImportJob.Status.RUNNING, j.startedAt = :now
+        WHERE j.id = :id AND j.status = com.cartagenacorp.lm_oauth.entity.UserImportJob.Status.QUEUED
+    """)
+    int markRunning(UUID id, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE UserImportJob j
+        SET j.status = :status, j.errorMessage = :error, j.finishedAt = :now
+        WHERE j.id = :id
+          AND j.status IN (com.cartagenacorp.lm_oauth.entity.UserImportJob.Status.QUEUED,
+                           com.cartagenacorp.lm_oauth.entity.UserImportJob.Status.RUNNING)
+    """)
+    int finish(UUID id, UserImportJob.Status status, String error, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserImportJob j SET j.heartbeatAt = :now WHERE j.id IN :ids")
+    int heartbeat(Collection<UUID> ids, LocalDateTime now);
+
+    // Trabajos cuyo nodo dejó de renovar el heartbeat (caída o reinicio); sin heartbeat se toma la creación
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE UserImportJob j
+        SET j.status = com.cartagenacorp.lm_oauth.entity.UserImportJob.Status.FAILED,
+            j.errorMessage = :error, j.finishedAt = :now
+        WHERE j.status IN (com.cartagenacorp.lm_oauth.entity.UserImportJob.Status.QUEUED,
+                           com.cartagenacorp.lm_oauth.entity.UserImportJob.Status.RUNNING)
+          AND COALESCE(j.heartbeatAt, j.createdAt) < :staleBefore
+    """)
+    int failStale(LocalDateTime staleBefore, LocalDateTime now, String error);
+}
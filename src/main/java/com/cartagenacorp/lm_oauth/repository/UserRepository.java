@@ -1,14 +1,23 @@
 package com.cartagenacorp.lm_oauth.repository;
 
+import com.cartagenacorp.lm_oauth.dto.UserIdentifierView;
+import com.cartagenacorp.lm_oauth.dto.UserSnapshot;
 import com.cartagenacorp.lm_oauth.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
@@ -31,4 +40,107 @@ public interface UserRepository extends JpaRepository<User, UUID> {
            OR LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')))
     """)
     Page<User> searchUsers(String search, UUID organizationId, Pageable pageable);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    @Query("""
+        SELECT new com.cartagenacorp.lm_oauth.dto.UserSnapshot(
+            u.id, u.email, u.firstName, u.lastName, u.picture, u.role, u.organizationId, u.createdAt)
+        FROM User u
+        WHERE u.id IN :ids
+    """)
+    List<UserSnapshot> findSnapshotsByIdIn(Collection<UUID> ids);
+
+    @Query("""
+        SELECT u FROM User u
+        WHERE u.organizationId = :organizationId
+           AND (LOWER(CONCAT(u.firstName, ' ', u.lastName)) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.firstName) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.lastName) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')))
+        ORDER BY u.createdAt DESC NULLS FIRST, u.id DESC
+    """)
+    List<User> scrollUsers(String search, UUID organizationId, Pageable pageable);
+
+    // Comparación de filas: Postgres la usa como límite de idx_users_org_created_id y cada página
+    // empieza justo tras el cursor; la forma con OR obligaba a recorrer el índice desde el principio.
+    // Los usuarios sin createdAt van primero (NULLS FIRST, como el índice) y la comparación los excluye
+    @Query("""
+        SELECT u FROM User u
+        WHERE u.organizationId = :organizationId
+           AND (LOWER(CONCAT(u.firstName, ' ', u.lastName)) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.firstName) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.lastName) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')))
+           AND (u.createdAt, u.id) < (:createdAt, :id)
+        ORDER BY u.createdAt DESC NULLS FIRST, u.id DESC
+    """)
+    List<User> scrollUsersAfter(String search, UUID organizationId, LocalDateTime createdAt, UUID id, Pageable pageable);
+
+    // Cursor sobre un usuario sin createdAt: quedan los demás sin fecha con id menor y todos los que tienen fecha
+    @Query("""
+        SELECT u FROM User u
+        WHERE u.organizationId = :organizationId
+           AND (LOWER(CONCAT(u.firstName, ' ', u.lastName)) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.firstName) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.lastName) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')))
+           AND (u.createdAt IS NOT NULL OR u.id < :id)
+        ORDER BY u.createdAt DESC NULLS FIRST, u.id DESC
+    """)
+    List<User> scrollUsersAfterUndated(String search, UUID organizationId, UUID id, Pageable pageable);
+
+    @Query("""
+        SELECT COUNT(u) FROM User u
+        WHERE u.organizationId = :organizationId
+           AND (LOWER(CONCAT(u.firstName, ' ', u.lastName)) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.firstName) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.lastName) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')))
+    """)
+    long countSearchUsers(String search, UUID organizationId);
+
+    // El LIKE sobre search_text usa el índice GIN de trigramas para filtrar candidatos; los cuatro
+    // predicados originales se vuelven a evaluar para devolver exactamente los mismos resultados
+    @Query(value = """
+        SELECT u.* FROM users u
+        WHERE u.organization_id = :organizationId
+           AND lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '') || ' ' || u.email) LIKE '%' || lower(:search) || '%'
+           AND (lower(concat(u.first_name, ' ', u.last_name)) LIKE '%' || lower(:search) || '%'
+           OR lower(u.first_name) LIKE '%' || lower(:search) || '%'
+           OR lower(u.last_name) LIKE '%' || lower(:search) || '%'
+           OR lower(u.email) LIKE '%' || lower(:search) || '%')
+        ORDER BY similarity(lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '') || ' ' || u.email), lower(:search)) DESC,
+                 u.created_at DESC
+    """, countQuery = """
+        SELECT count(*) FROM users u
+        WHERE u.organization_id = :organizationId
+           AND lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '') || ' ' || u.email) LIKE '%' || lower(:search) || '%'
+           AND (lower(concat(u.first_name, ' ', u.last_name)) LIKE '%' || lower(:search) || '%'
+           OR lower(u.first_name) LIKE '%' || lower(:search) || '%'
+           OR lower(u.last_name) LIKE '%' || lower(:search) || '%'
+           OR lower(u.email) LIKE '%' || lower(:search) || '%')
+    """, nativeQuery = true)
+    Page<User> searchUsersRanked(String search, UUID organizationId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.id AS id, u.email AS email, u.firstName AS firstName, u.lastName AS lastName, u.createdAt AS createdAt FROM User u")
+    Stream<UserIdentifierView> streamIdentifiers();
+
+    @Query("SELECT u.id AS id, u.email AS email, u.firstName AS firstName, u.lastName AS lastName, u.createdAt AS createdAt FROM User u WHERE u.id = :id")
+    Optional<UserIdentifierView> findIdentifierById(UUID id);
+
+    // Misma normalización y desempate que el índice en memoria; solo se usa mientras el índice se construye
+    @Query(value = """
+        SELECT u.id FROM users u
+        WHERE lower(trim(u.email)) = :key
+           OR lower(trim(u.first_name)) = :key
+           OR lower(trim(u.last_name)) = :key
+           OR lower(trim(u.first_name)) || '.' || lower(trim(u.last_name)) = :key
+           OR lower(trim(u.first_name)) || ' ' || lower(trim(u.last_name)) = :key
+        ORDER BY u.created_at NULLS FIRST, u.id
+        LIMIT 1
+    """, nativeQuery = true)
+    Optional<UUID> findOldestIdByIdentifier(String key);
 }
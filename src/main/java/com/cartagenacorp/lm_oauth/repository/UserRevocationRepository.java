@@ -0,0 +1,32 @@
+package com.cartagenacorp.lm_oauth.repository;
+
+import com.cartagenacorp.lm_oauth.entity.UserRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UserRevocationRepository extends JpaRepository<UserRevocation, UUID> {
+
+    // Se conserva siempre la revocación más reciente, aunque dos nodos escriban a la vez
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO user_revocation (user_id, revoked_at) VALUES (:userId, :revokedAt)
+        ON CONFLICT (user_id) DO UPDATE SET revoked_at = GREATEST(user_revocation.revoked_at, EXCLUDED.revoked_at)
+    """, nativeQuery = true)
+    void upsert(UUID userId, Instant revokedAt);
+
+    List<UserRevocation> findByRevokedAtAfter(Instant since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UserRevocation r WHERE r.revokedAt < :cutoff")
+    int deleteByRevokedAtBefore(Instant cutoff);
+}
@@ -0,0 +1,90 @@
+package com.cartagenacorp.lm_oauth.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Crea la extensión pg_trgm y el índice GIN sobre el texto de búsqueda de usuarios. Si la base de datos no
+ * lo permite (p. ej. sin privilegios para crear extensiones) la búsqueda sigue funcionando con LIKE.
+ */
+@Component
+public class UserSearchIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndexInitializer.class);
+
+    // Clave del advisory lock que serializa la construcción del índice entre nodos
+    private static final long INDEX_LOCK = 0x75737273L;
+
+    private static final String SEARCH_TEXT_INDEX_NAME = "idx_users_search_text_trgm";
+
+    private static final String SEARCH_TEXT_INDEX = """
+            CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_search_text_trgm ON users
+            USING gin ((lower(coalesce(first_name, '') || ' ' || coalesce(last_name, '') || ' ' || email)) gin_trgm_ops)
+            """;
+
+    @Value("${app.users.search.trigram-enabled:true}")
+    private boolean trigramEnabled;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean trigramAvailable = false;
+
+    public UserSearchIndexInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        if (!trigramEnabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            Boolean built = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+                JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                // Solo un nodo construye el índice; si lo tiene otro se comprueba en la siguiente revisión
+                if (!Boolean.TRUE.equals(session.queryForObject("SELECT pg_try_advisory_lock(?)", Boolean.class, INDEX_LOCK))) {
+                    return null;
+                }
+                try {
+                    return ConcurrentIndexes.ensure(session, SEARCH_TEXT_INDEX_NAME, SEARCH_TEXT_INDEX);
+                } finally {
+                    session.queryForObject("SELECT pg_advisory_unlock(?)", Boolean.class, INDEX_LOCK);
+                }
+            });
+            if (built == null) {
+                logger.info("[UserSearchIndexInitializer] Índice de trigramas en construcción en otro nodo");
+                return;
+            }
+            trigramAvailable = built;
+            logger.info("[UserSearchIndexInitializer] Búsqueda por trigramas {}", trigramAvailable ? "habilitada" : "no disponible, índice inválido");
+        } catch (DataAccessException ex) {
+            logger.warn("[UserSearchIndexInitializer] No se pudo preparar pg_trgm, se usará búsqueda LIKE: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Mientras el índice no esté disponible se reintenta periódicamente: reconstruye el que haya quedado
+     * inválido y detecta el que otro nodo terminó de construir.
+     */
+    @Scheduled(fixedDelayString = "${app.users.search.index-check-interval:PT10M}",
+            initialDelayString = "${app.users.search.index-check-interval:PT10M}")
+    public void recheckIndexes() {
+        if (trigramEnabled && !trigramAvailable) {
+            createIndexes();
+        }
+    }
+
+    public boolean isTrigramAvailable() {
+        return trigramAvailable;
+    }
+}
@@ -0,0 +1,30 @@
+package com.cartagenacorp.lm_oauth.security;
+
+import com.cartagenacorp.lm_oauth.dto.UserSnapshot;
+import com.cartagenacorp.lm_oauth.entity.User;
+
+import java.util.UUID;
+
+/**
+ * Principal ligero que se guarda en el {@code SecurityContext}. No contiene la contraseña ni el resto
+ * de la entidad; los servicios que necesitan el {@link User} completo deben cargarlo explícitamente.
+ */
+public record AuthenticatedUser(
+        UUID id,
+        String email,
+        String role,
+        UUID organizationId
+) {
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole(), user.getOrganizationId());
+    }
+
+    public static AuthenticatedUser from(UserSnapshot user) {
+        return new AuthenticatedUser(user.id(), user.email(), user.role(), user.organizationId());
+    }
+
+    public static AuthenticatedUser from(VerifiedToken token) {
+        return new AuthenticatedUser(token.userId(), token.email(), token.role(), token.organizationId());
+    }
+}
@@ -0,0 +1,102 @@
+package com.cartagenacorp.lm_oauth.security;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lee por adelantado hasta {@code limit} bytes del cuerpo para poder inspeccionarlo en un filtro y los
+ * vuelve a entregar, seguidos del resto del stream original, a quien lea la petición después.
+ */
+class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
+
+    private final byte[] prefix;
+    private final boolean complete;
+    private ServletInputStream inputStream;
+
+    CachedBodyHttpServletRequest(HttpServletRequest request, int limit) throws IOException {
+        super(request);
+        byte[] read = request.getInputStream().readNBytes(limit + 1);
+        this.complete = read.length <= limit;
+        this.prefix = read;
+    }
+
+    /**
+     * El cuerpo completo, o null si supera el límite.
+     */
+    byte[] getBody() {
+        return complete ? prefix : null;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            InputStream source = complete
+                    ? new ByteArrayInputStream(prefix)
+                    : new SequenceInputStream(new ByteArrayInputStream(prefix), super.getInputStream());
+            inputStream = new ReplayInputStream(source);
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+
+    private static class ReplayInputStream extends ServletInputStream {
+
+        private final InputStream source;
+        private boolean finished = false;
+
+        private ReplayInputStream(InputStream source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = source.read();
+            finished = value == -1;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = source.read(buffer, offset, length);
+            finished = count == -1;
+            return count;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        // Los datos ya están disponibles (o se leen de forma bloqueante): se avisa al listener en el momento
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            try {
+                if (!finished) {
+                    readListener.onDataAvailable();
+                }
+                if (finished) {
+                    readListener.onAllDataRead();
+                }
+            } catch (IOException e) {
+                readListener.onError(e);
+            }
+        }
+    }
+}
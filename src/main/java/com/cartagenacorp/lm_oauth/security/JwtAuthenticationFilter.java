@@ -1,12 +1,12 @@
 package com.cartagenacorp.lm_oauth.security;
 
-import com.cartagenacorp.lm_oauth.entity.User;
-import com.cartagenacorp.lm_oauth.repository.UserRepository;
-import com.cartagenacorp.lm_oauth.util.JwtTokenUtil;
+import com.cartagenacorp.lm_oauth.service.UserDirectoryCache;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,19 +16,25 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.UUID;
 import java.util.Optional;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtTokenUtil jwtTokenUtil;
+    @Value("${app.security.stateless-principal:false}")
+    private boolean statelessPrincipal;
 
-    private final UserRepository userRepository;
+    private final VerifiedTokenCache verifiedTokenCache;
 
-    public JwtAuthenticationFilter(JwtTokenUtil jwtTokenUtil, UserRepository userRepository) {
-        this.jwtTokenUtil = jwtTokenUtil;
-        this.userRepository = userRepository;
+    private final UserDirectoryCache userDirectoryCache;
+
+    private final UserRevocationRegistry userRevocationRegistry;
+
+    public JwtAuthenticationFilter(VerifiedTokenCache verifiedTokenCache, UserDirectoryCache userDirectoryCache,
+                                   UserRevocationRegistry userRevocationRegistry) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.userDirectoryCache = userDirectoryCache;
+        this.userRevocationRegistry = userRevocationRegistry;
     }
 
     @Override
@@ -41,35 +47,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String token = requestTokenHeader.substring(7);
 
             try {
-                if (jwtTokenUtil.validateToken(token)) {
-                    UUID userId = jwtTokenUtil.getUserUUIDFromToken(token);
-
-                    Optional<User> user = userRepository.findById(userId);
-
-                    if (user.isPresent()) {
-                        List<String> permissions = jwtTokenUtil.getClaimFromToken(token, claims ->
-                                (List<String>) claims.get("permissions")
-                        );
-                        List<SimpleGrantedAuthority> authorities = permissions.stream()
-                                .map(SimpleGrantedAuthority::new)
-                                .toList();
-
-                        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                                user.get(), token, authorities
-                        );
-
-                        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authentication);
-                    } else {
-                        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                        response.getWriter().write("Invalid user ID in token");
-                        return;
-                    }
+                VerifiedToken verifiedToken = verifiedTokenCache.verify(token);
+
+                Optional<AuthenticatedUser> user = resolvePrincipal(verifiedToken);
+
+                if (user.isPresent()) {
+                    List<SimpleGrantedAuthority> authorities = verifiedToken.permissions().stream()
+                            .map(SimpleGrantedAuthority::new)
+                            .toList();
+
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            user.get(), token, authorities
+                    );
+
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
                 } else {
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                    response.getWriter().write("Invalid or expired token");
+                    response.getWriter().write("Invalid user ID in token");
                     return;
                 }
+            } catch (JwtException e) {
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                response.getWriter().write("Invalid or expired token");
+                return;
             } catch (Exception e) {
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                 response.getWriter().write("Token validation failed: " + e.getMessage());
@@ -79,4 +80,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         chain.doFilter(request, response);
     }
+
+    private Optional<AuthenticatedUser> resolvePrincipal(VerifiedToken verifiedToken) {
+        if (statelessPrincipal) {
+            if (userRevocationRegistry.isRevoked(verifiedToken)) {
+                return Optional.empty();
+            }
+            return Optional.of(AuthenticatedUser.from(verifiedToken));
+        }
+        return userDirectoryCache.findById(verifiedToken.userId()).map(AuthenticatedUser::from);
+    }
 }
@@ -0,0 +1,226 @@
+package com.cartagenacorp.lm_oauth.security;
+
+import com.cartagenacorp.lm_oauth.config.JwtSigningProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolver;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.SignatureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.*;
+
+/**
+ * Conjunto de claves de firma identificadas por {@code kid}. Sólo la clave activa firma tokens nuevos;
+ * el resto se mantiene para verificar los tokens emitidos antes de una rotación y se publica en el JWKS.
+ */
+@Component
+public class JwtKeyRing implements SigningKeyResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private final SignatureAlgorithm algorithm;
+    private final Map<String, SigningKey> keys;
+    private final SigningKey activeKey;
+    private final Key legacyHmacKey;
+    private final boolean acceptLegacyHmac;
+    private final List<Map<String, Object>> publicJwks;
+
+    public JwtKeyRing(JwtSigningProperties properties, @Value("${app.jwt.secret:}") String secret) {
+        this.algorithm = SignatureAlgorithm.forName(properties.getAlgorithm());
+        this.legacyHmacKey = secret != null && !secret.isBlank()
+                ? new SecretKeySpec(Decoders.BASE64.decode(secret), SignatureAlgorithm.HS256.getJcaName())
+                : null;
+        this.acceptLegacyHmac = properties.isAcceptLegacyHmac();
+
+        if (algorithm.isHmac()) {
+            if (algorithm != SignatureAlgorithm.HS256) {
+                throw new IllegalStateException("Con secreto compartido sólo se admite HS256");
+            }
+            if (legacyHmacKey == null) {
+                throw new IllegalStateException("app.jwt.secret es obligatorio cuando se firma con " + algorithm);
+            }
+            this.keys = Map.of();
+            this.activeKey = null;
+            this.publicJwks = List.of();
+            return;
+        }
+        if (!algorithm.isRsa() && !algorithm.isEllipticCurve()) {
+            throw new IllegalStateException("Algoritmo de firma no soportado: " + algorithm);
+        }
+
+        ResourceLoader resourceLoader = new DefaultResourceLoader();
+        Map<String, SigningKey> loaded = new LinkedHashMap<>();
+        for (JwtSigningProperties.KeyDefinition definition : properties.getKeys()) {
+            SigningKey key = loadKey(definition, resourceLoader);
+            if (loaded.put(key.id(), key) != null) {
+                throw new IllegalStateException("kid duplicado en app.jwt.signing.keys: " + key.id());
+            }
+        }
+        this.keys = Collections.unmodifiableMap(loaded);
+
+        SigningKey active = keys.get(properties.getActiveKeyId());
+        if (active == null || active.privateKey() == null) {
+            throw new IllegalStateException("app.jwt.signing.active-key-id debe referenciar una clave con private-key");
+        }
+        this.activeKey = active;
+        this.publicJwks = keys.values().stream().map(this::toJwk).toList();
+        logger.info("[JwtKeyRing] Firmando con {} kid={} ({} claves de verificación)", algorithm, active.id(), keys.size());
+    }
+
+    public SignatureAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public boolean isAsymmetric() {
+        return activeKey != null;
+    }
+
+    public String getActiveKeyId() {
+        return activeKey != null ? activeKey.id() : null;
+    }
+
+    public Key getSigningKey() {
+        return activeKey != null ? activeKey.privateKey() : legacyHmacKey;
+    }
+
+    public List<Map<String, Object>> getPublicJwks() {
+        return publicJwks;
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        return resolve(header);
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, String plaintext) {
+        return resolve(header);
+    }
+
+    private Key resolve(JwsHeader<?> header) {
+        SignatureAlgorithm tokenAlgorithm = SignatureAlgorithm.forName(header.getAlgorithm());
+        String kid = header.getKeyId();
+
+        if (kid == null) {
+            if (tokenAlgorithm.isHmac() && legacyHmacKey != null && (algorithm.isHmac() || acceptLegacyHmac)) {
+                return legacyHmacKey;
+            }
+            throw new SignatureException("El token no indica kid");
+        }
+
+        SigningKey key = keys.get(kid);
+        if (key == null) {
+            throw new SignatureException("Clave de firma desconocida: " + kid);
+        }
+        if (key.algorithm() != tokenAlgorithm) {
+            throw new SignatureException("El algoritmo del token no corresponde a la clave " + kid);
+        }
+        return key.publicKey();
+    }
+
+    private SigningKey loadKey(JwtSigningProperties.KeyDefinition definition, ResourceLoader resourceLoader) {
+        if (definition.getId() == null || definition.getId().isBlank()) {
+            throw new IllegalStateException("Cada clave de app.jwt.signing.keys necesita un id");
+        }
+        if (definition.getPublicKey() == null) {
+            throw new IllegalStateException("La clave " + definition.getId() + " no tiene public-key");
+        }
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(algorithm.getFamilyName().equals("ECDSA") ? "EC" : "RSA");
+            PublicKey publicKey = keyFactory.generatePublic(
+                    new X509EncodedKeySpec(readPem(definition.getPublicKey(), resourceLoader)));
+            PrivateKey privateKey = definition.getPrivateKey() != null
+                    ? keyFactory.generatePrivate(new PKCS8EncodedKeySpec(readPem(definition.getPrivateKey(), resourceLoader)))
+                    : null;
+            SignatureAlgorithm keyAlgorithm = algorithmFor(publicKey);
+            if (keyAlgorithm != algorithm) {
+                throw new IllegalStateException("La clave " + definition.getId() + " no es válida para " + algorithm);
+            }
+            return new SigningKey(definition.getId(), keyAlgorithm, publicKey, privateKey);
+        } catch (GeneralSecurityException | IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("No se pudo cargar la clave " + definition.getId(), e);
+        }
+    }
+
+    private SignatureAlgorithm algorithmFor(PublicKey publicKey) {
+        if (publicKey instanceof RSAPublicKey rsa) {
+            if (rsa.getModulus().bitLength() < 2048) {
+                throw new IllegalStateException("Las claves RSA deben tener al menos 2048 bits");
+            }
+            return algorithm.isRsa() ? algorithm : SignatureAlgorithm.RS256;
+        }
+        if (publicKey instanceof ECPublicKey ec) {
+            return switch (ec.getParams().getCurve().getField().getFieldSize()) {
+                case 256 -> SignatureAlgorithm.ES256;
+                case 384 -> SignatureAlgorithm.ES384;
+                case 521 -> SignatureAlgorithm.ES512;
+                default -> throw new IllegalStateException("Curva EC no soportada");
+            };
+        }
+        throw new IllegalStateException("Tipo de clave no soportado: " + publicKey.getAlgorithm());
+    }
+
+    private static byte[] readPem(String value, ResourceLoader resourceLoader) throws IOException {
+        String pem = value.trim().startsWith("-----BEGIN")
+                ? value
+                : new String(resourceLoader.getResource(value.trim()).getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+        String base64 = pem.replaceAll("-----(BEGIN|END) [A-Z ]+-----", "").replaceAll("\\s", "");
+        return Base64.getDecoder().decode(base64);
+    }
+
+    private Map<String, Object> toJwk(SigningKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kid", key.id());
+        jwk.put("use", "sig");
+        jwk.put("alg", key.algorithm().getValue());
+        if (key.publicKey() instanceof RSAPublicKey rsa) {
+            jwk.put("kty", "RSA");
+            jwk.put("n", base64Url(unsigned(rsa.getModulus(), 0)));
+            jwk.put("e", base64Url(unsigned(rsa.getPublicExponent(), 0)));
+        } else if (key.publicKey() instanceof ECPublicKey ec) {
+            int fieldSize = ec.getParams().getCurve().getField().getFieldSize();
+            int length = (fieldSize + 7) / 8;
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-" + fieldSize);
+            jwk.put("x", base64Url(unsigned(ec.getW().getAffineX(), length)));
+            jwk.put("y", base64Url(unsigned(ec.getW().getAffineY(), length)));
+        }
+        return Collections.unmodifiableMap(jwk);
+    }
+
+    private static byte[] unsigned(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        int start = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+        int size = Math.max(bytes.length - start, length);
+        byte[] result = new byte[size];
+        System.arraycopy(bytes, start, result, size - (bytes.length - start), bytes.length - start);
+        return result;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private record SigningKey(String id, SignatureAlgorithm algorithm, PublicKey publicKey, PrivateKey privateKey) {
+    }
+}
@@ -0,0 +1,172 @@
+package com.cartagenacorp.lm_oauth.security;
+
+import com.cartagenacorp.lm_oauth.config.RateLimitProperties;
+import com.cartagenacorp.lm_oauth.dto.NotificationResponse;
+import com.cartagenacorp.lm_oauth.util.AtomicTokenBucket;
+import com.cartagenacorp.lm_oauth.util.ConstantUtil;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita por email y por IP las peticiones a los endpoints públicos de autenticación y OTP antes de que
+ * lleguen a BCrypt, a la base de datos o a SES. Cada clave tiene su propio {@link AtomicTokenBucket}; los
+ * buckets viven en una caché Caffeine acotada, que reparte el acceso concurrente y descarta las claves
+ * inactivas o menos usadas cuando se alcanza el máximo.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final String EMAIL = "email";
+    private static final String IP = "ip";
+
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final ObjectReader bodyReader;
+    private final Cache<String, AtomicTokenBucket> buckets;
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        // Con claves duplicadas el filtro y el controlador podrían quedarse con emails distintos
+        this.bodyReader = objectMapper.reader().with(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxKeys())
+                .expireAfterAccess(properties.getIdleExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rateLimitBuckets");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled()
+                || HttpMethod.OPTIONS.matches(request.getMethod())
+                || findPolicy(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        RateLimitProperties.Policy policy = findPolicy(request);
+        HttpServletRequest effectiveRequest = request;
+
+        // Primero la IP: es gratis de obtener y evita leer el cuerpo de peticiones que se van a rechazar.
+        // getRemoteAddr() ya es la IP del cliente resuelta por RemoteIpValve a partir de los proxies de confianza
+        if (policy.getIp() != null) {
+            long wait = acquire(policy, IP, request.getRemoteAddr(), policy.getIp());
+            if (wait > 0) {
+                reject(request, response, policy, IP, wait);
+                return;
+            }
+        }
+
+        if (policy.getEmail() != null) {
+            // Un cuerpo que no se puede inspeccionar no pasa: si no, bastaría con inflarlo para saltarse el límite por email
+            if (request.getContentLengthLong() > properties.getMaxBodyBytes()) {
+                writeError(request, response, HttpStatus.PAYLOAD_TOO_LARGE, ConstantUtil.REQUEST_BODY_TOO_LARGE);
+                return;
+            }
+            CachedBodyHttpServletRequest cachedRequest = new CachedBodyHttpServletRequest(request, properties.getMaxBodyBytes());
+            effectiveRequest = cachedRequest;
+            if (cachedRequest.getBody() == null) {
+                writeError(request, response, HttpStatus.PAYLOAD_TOO_LARGE, ConstantUtil.REQUEST_BODY_TOO_LARGE);
+                return;
+            }
+            JsonNode body;
+            try {
+                body = bodyReader.readTree(cachedRequest.getBody());
+            } catch (IOException e) {
+                writeError(request, response, HttpStatus.BAD_REQUEST, ConstantUtil.INVALID_INPUT);
+                return;
+            }
+            String email = readEmail(body, policy.getEmailField());
+            if (email != null) {
+                long wait = acquire(policy, EMAIL, email, policy.getEmail());
+                if (wait > 0) {
+                    reject(request, response, policy, EMAIL, wait);
+                    return;
+                }
+            }
+        }
+
+        chain.doFilter(effectiveRequest, response);
+    }
+
+    private RateLimitProperties.Policy findPolicy(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (RateLimitProperties.Policy policy : properties.getPolicies()) {
+            if (policy.getPath() != null && pathMatcher.match(policy.getPath(), path)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    private long acquire(RateLimitProperties.Policy policy, String keyType, String value, RateLimitProperties.Rule rule) {
+        String key = policy.getPath() + ":" + keyType + ":" + value;
+        return buckets.get(key, ignored -> new AtomicTokenBucket(rule.getCapacity(), rule.getPeriod())).tryAcquire();
+    }
+
+    // Se lee exactamente el campo que enlaza el controlador, no el primer "email" que aparezca en el cuerpo
+    private String readEmail(JsonNode body, String emailField) {
+        JsonNode email = body == null ? null : body.at(emailField);
+        if (email == null || !email.isTextual() || email.asText().isBlank()) {
+            return null;
+        }
+        return email.asText().trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, RateLimitProperties.Policy policy,
+                        String keyType, long waitNanos) throws IOException {
+        long retryAfter = Math.max(1, (TimeUnit.NANOSECONDS.toMillis(waitNanos) + 999) / 1000);
+        logger.warn("[RateLimitFilter] Petición rechazada en {} por límite de {} desde {}, reintento en {}s",
+                policy.getPath(), keyType, request.getRemoteAddr(), retryAfter);
+        Counter.builder("http.rate_limit.rejected")
+                .tag("policy", policy.getPath())
+                .tag("key", keyType)
+                .register(meterRegistry)
+                .increment();
+
+        response.setHeader("Retry-After", String.valueOf(retryAfter));
+        writeError(request, response, HttpStatus.TOO_MANY_REQUESTS,
+                "Demasiadas solicitudes, intente de nuevo en " + retryAfter + " segundos");
+    }
+
+    private void writeError(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                            String message) throws IOException {
+        NotificationResponse body = NotificationResponse.error(message, status.value(), request.getRequestURL().toString());
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,123 @@
+package com.cartagenacorp.lm_oauth.security;
+
+import com.cartagenacorp.lm_oauth.entity.UserRevocation;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationBus;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationMessage;
+import com.cartagenacorp.lm_oauth.repository.UserRevocationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Registro de revocaciones por usuario para el modo de principal sin estado. Cuando un usuario es eliminado,
+ * cambia de organización o de rol, todos sus tokens emitidos hasta ese momento dejan de ser aceptados.
+ * Las entradas sólo necesitan vivir lo que dura un access token. Se consultan en memoria pero se persisten
+ * en {@code user_revocation} y se recargan al arrancar, para que un reinicio no vuelva a aceptar esos tokens.
+ */
+@Component
+public class UserRevocationRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserRevocationRegistry.class);
+
+    private final Cache<UUID, Instant> revocations;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final UserRevocationRepository userRevocationRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration tokenLifetime;
+
+    public UserRevocationRegistry(CacheInvalidationBus cacheInvalidationBus,
+                                  UserRevocationRepository userRevocationRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${app.jwt.expiration}") long expirationMs,
+                                  @Value("${app.security.revocation.max-size:100000}") long maxSize) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.userRevocationRepository = userRevocationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.tokenLifetime = Duration.ofMillis(expirationMs);
+        this.revocations = Caffeine.newBuilder()
+                .expireAfterWrite(tokenLifetime)
+                .maximumSize(maxSize)
+                .build();
+        // Antes de aceptar peticiones: solo interesan las revocaciones de tokens que aún pueden estar vigentes
+        List<UserRevocation> active = userRevocationRepository.findByRevokedAtAfter(Instant.now().minus(tokenLifetime));
+        active.forEach(revocation -> revoke(revocation.getUserId(), revocation.getRevokedAt()));
+        logger.info("[UserRevocationRegistry] {} revocaciones vigentes cargadas", active.size());
+    }
+
+    /**
+     * Revoca los tokens del usuario en este nodo, la persiste y la propaga al resto de réplicas.
+     */
+    public void revoke(UUID userId) {
+        Instant revokedAt = Instant.now();
+        revoke(userId, revokedAt);
+        CacheInvalidationMessage message = CacheInvalidationMessage.revocation(userId, revokedAt);
+        try {
+            // La revocación y su NOTIFY se confirman juntos: una revocación guardada siempre llega a las réplicas
+            transactionTemplate.executeWithoutResult(status -> {
+                userRevocationRepository.upsert(userId, revokedAt);
+                cacheInvalidationBus.publish(message);
+            });
+        } catch (DataAccessException e) {
+            // Las réplicas activas la reciben igualmente por el bus; solo se perdería en un reinicio
+            logger.error("[UserRevocationRegistry] No se pudo persistir la revocación del usuario {}: {}", userId, e.getMessage());
+            cacheInvalidationBus.publish(message);
+        }
+    }
+
+    public void revoke(UUID userId, Instant revokedAt) {
+        revocations.asMap().merge(userId, revokedAt, (current, candidate) -> candidate.isAfter(current) ? candidate : current);
+    }
+
+    /**
+     * Elimina las revocaciones cuyos tokens ya han expirado todos.
+     */
+    @Scheduled(fixedDelayString = "${app.security.revocation.purge-interval:PT1H}",
+            initialDelayString = "${app.security.revocation.purge-interval:PT1H}")
+    public void purge() {
+        try {
+            int purged = userRevocationRepository.deleteByRevokedAtBefore(Instant.now().minus(tokenLifetime));
+            if (purged > 0) {
+                logger.debug("[UserRevocationRegistry] {} revocaciones caducadas eliminadas", purged);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("[UserRevocationRegistry] No se pudieron purgar las revocaciones caducadas: {}", e.getMessage());
+        }
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        Instant revokedAt = revocations.getIfPresent(token.userId());
+        if (revokedAt == null) {
+            return false;
+        }
+        // El claim iat tiene precisión de segundos, así que un token emitido en el mismo segundo también se rechaza
+        return token.issuedAt() == null || !token.issuedAt().isAfter(revokedAt.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationMessage message) {
+        if (message.type() == CacheInvalidationMessage.Type.REVOCATION && message.revokedAt() != null) {
+            revoke(message.userId(), message.revokedAt());
+        }
+    }
+
+    public void clear() {
+        revocations.invalidateAll();
+    }
+}
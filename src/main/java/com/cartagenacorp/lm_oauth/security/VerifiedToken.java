@@ -0,0 +1,20 @@
+package com.cartagenacorp.lm_oauth.security;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public record VerifiedToken(
+        UUID userId,
+        String email,
+        String role,
+        UUID organizationId,
+        List<String> permissions,
+        Instant issuedAt,
+        Instant expiresAt
+) {
+
+    public VerifiedToken {
+        permissions = permissions != null ? List.copyOf(permissions) : List.of();
+    }
+}
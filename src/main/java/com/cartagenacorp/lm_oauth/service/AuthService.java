@@ -14,7 +14,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -32,17 +31,17 @@ public class AuthService {
     private final UserRepository userRepository;
     private final RoleExternalService roleExternalService;
     private final RefreshTokenService refreshTokenService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final OtpService otpService;
 
     public AuthService(JwtTokenUtil jwtTokenUtil, UserRepository userRepository,
                        RoleExternalService roleExternalService, RefreshTokenService refreshTokenService,
-                       PasswordEncoder passwordEncoder, OtpService otpService) {
+                       PasswordHashingService passwordHashingService, OtpService otpService) {
         this.jwtTokenUtil = jwtTokenUtil;
         this.userRepository = userRepository;
         this.roleExternalService = roleExternalService;
         this.refreshTokenService = refreshTokenService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.otpService = otpService;
     }
 
@@ -66,12 +65,22 @@ public class AuthService {
         }
 
         logger.info("[AuthService] Usuario con email {} no ha completado su registro, procediendo a validar OTP", registerRequestDto.getEmail());
-        otpService.validateOtp(otpRequest);
+        // Una OTP errónea consume su intento y se rechaza sin llegar a BCrypt. Una correcta se consume después
+        // del hash: si el pool de hash está saturado se responde 503 y la OTP sigue siendo válida
+        boolean otpConsumed = false;
+        if (!otpService.isRedeemable(otpRequest)) {
+            otpService.validateOtp(otpRequest);
+            otpConsumed = true;
+        }
+        String encodedPassword = passwordHashingService.encode(registerRequestDto.getPassword());
+        if (!otpConsumed) {
+            otpService.validateOtp(otpRequest);
+        }
 
         logger.debug("[AuthService] OTP validado, actualizando datos del usuario con email {}", registerRequestDto.getEmail());
         user.setFirstName(registerRequestDto.getFirstName());
         user.setLastName(registerRequestDto.getLastName());
-        user.setPassword(passwordEncoder.encode(registerRequestDto.getPassword()));
+        user.setPassword(encodedPassword);
         user.setRegistered(true);
 
         userRepository.save(user);
@@ -97,7 +106,7 @@ public class AuthService {
         }
 
         logger.info("[AuthService] Verificando credenciales del usuario con email {}", loginRequestDTO.getEmail());
-        if (!passwordEncoder.matches(loginRequestDTO.getPassword(), user.getPassword())) {
+        if (!passwordHashingService.matches(loginRequestDTO.getPassword(), user.getPassword())) {
             logger.warn("[AuthService] Credenciales inválidas para el usuario con email {}", loginRequestDTO.getEmail());
             throw new BaseException("Credenciales inválidas", HttpStatus.UNAUTHORIZED.value());
         }
@@ -0,0 +1,204 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.entity.EmailOutbox;
+import com.cartagenacorp.lm_oauth.event.EmailQueuedEvent;
+import com.cartagenacorp.lm_oauth.repository.EmailOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import software.amazon.awssdk.services.ses.model.SesException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entrega los emails del outbox. Cada mensaje se intenta en cuanto se confirma la transacción que lo
+ * creó y un barrido periódico recoge los reintentos pendientes y los envíos que quedaron a medias.
+ * Los fallos transitorios se reintentan con backoff exponencial hasta {@code max-attempts}. Los mensajes
+ * enviados o descartados se borran al superar {@code retention}.
+ */
+@Service
+public class EmailOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    // Rechazos de SES que no se resuelven reintentando, tanto de envíos individuales como masivos
+    private static final Set<String> PERMANENT_ERRORS = Set.of(
+            "MessageRejected", "MailFromDomainNotVerifiedException", "ConfigurationSetDoesNotExistException",
+            "TemplateDoesNotExistException", "MailFromDomainNotVerified", "ConfigurationSetDoesNotExist",
+            "TemplateDoesNotExist", "InvalidParameterValue");
+
+    private static final int PURGE_BATCH_SIZE = 1000;
+    private static final int PURGE_MAX_BATCHES = 100;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailOutboxService emailOutboxService;
+    private final EmailService emailService;
+    private final SesSendScheduler sesSendScheduler;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration sendLease;
+    private final int batchSize;
+    private final Period retention;
+
+    private final ThreadPoolExecutor executor;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository emailOutboxRepository,
+                                 EmailOutboxService emailOutboxService,
+                                 EmailService emailService,
+                                 SesSendScheduler sesSendScheduler,
+                                 @Value("${app.email.outbox.workers:4}") int workers,
+                                 @Value("${app.email.outbox.queue-capacity:1000}") int queueCapacity,
+                                 @Value("${app.email.outbox.max-attempts:5}") int maxAttempts,
+                                 @Value("${app.email.outbox.initial-backoff:PT5S}") Duration initialBackoff,
+                                 @Value("${app.email.outbox.max-backoff:PT10M}") Duration maxBackoff,
+                                 @Value("${app.email.outbox.send-lease:PT1M}") Duration sendLease,
+                                 @Value("${app.email.outbox.batch-size:50}") int batchSize,
+                                 @Value("${app.email.outbox.retention:P7D}") Period retention) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailOutboxService = emailOutboxService;
+        this.emailService = emailService;
+        this.sesSendScheduler = sesSendScheduler;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.sendLease = sendLease;
+        this.batchSize = batchSize;
+        this.retention = retention;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "email-outbox-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEmailQueued(EmailQueuedEvent event) {
+        // Solo se reclama si el envío puede salir antes de que venza el lease; si no, lo recoge el barrido
+        if (sesSendScheduler.sendableWithin(sendLease) <= 0) {
+            logger.debug("[EmailOutboxDispatcher] Cola de SES sin margen, el email {} se enviará en el siguiente barrido", event.outboxId());
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                LocalDateTime now = LocalDateTime.now();
+                emailOutboxRepository.claim(event.outboxId(), now, now.plus(sendLease)).forEach(this::deliver);
+            });
+        } catch (RejectedExecutionException e) {
+            // La fila sigue pendiente y la recogerá el barrido periódico
+            logger.warn("[EmailOutboxDispatcher] Cola llena, el email {} se enviará en el siguiente barrido", event.outboxId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.outbox.poll-interval:PT5S}")
+    public void sweep() {
+        // No se reclaman más filas de las que SES puede enviar antes de que venza su lease; si se reclamaran
+        // de más, el barrido las volvería a tomar mientras siguen en cola y el destinatario recibiría duplicados
+        int capacity = Math.min(batchSize, Math.min(executor.getQueue().remainingCapacity(),
+                sesSendScheduler.sendableWithin(sendLease)));
+        if (capacity <= 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> due = emailOutboxRepository.claimDue(now, now.plus(sendLease), capacity);
+        for (EmailOutbox email : due) {
+            try {
+                executor.execute(() -> deliver(email));
+            } catch (RejectedExecutionException e) {
+                // Se libera al vencer locked_until
+                logger.warn("[EmailOutboxDispatcher] Cola llena, el email {} queda para más tarde", email.getId());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.outbox.purge-interval:PT1H}",
+            initialDelayString = "${app.email.outbox.purge-interval:PT1H}")
+    public void purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int total = 0;
+        try {
+            for (int batch = 0; batch < PURGE_MAX_BATCHES; batch++) {
+                int deleted = emailOutboxRepository.deleteFinishedBefore(cutoff, PURGE_BATCH_SIZE);
+                total += deleted;
+                if (deleted < PURGE_BATCH_SIZE) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("[EmailOutboxDispatcher] No se pudo purgar el outbox: {}", e.getMessage());
+        }
+        if (total > 0) {
+            logger.info("[EmailOutboxDispatcher] {} emails enviados o descartados anteriores a {} eliminados", total, cutoff);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void deliver(EmailOutbox email) {
+        try {
+            emailService.sendTemplate(email.getRecipient(), email.getTemplate(), emailOutboxService.readVariables(email))
+                    .whenComplete((messageId, error) -> {
+                        if (error == null) {
+                            if (emailOutboxRepository.markSent(email.getId(), email.getAttempts(), messageId, LocalDateTime.now()) == 0) {
+                                logger.warn("[EmailOutboxDispatcher] Email {} enviado tras perder su lease (intento {})", email.getId(), email.getAttempts());
+                            }
+                        } else {
+                            handleFailure(email, error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error);
+                        }
+                    });
+        } catch (Exception e) {
+            handleFailure(email, e);
+        }
+    }
+
+    private void handleFailure(EmailOutbox email, Throwable error) {
+        boolean permanent;
+        if (error instanceof SesException sesException) {
+            String code = sesException.awsErrorDetails() != null ? sesException.awsErrorDetails().errorCode() : null;
+            permanent = code != null && PERMANENT_ERRORS.contains(code);
+        } else {
+            permanent = error instanceof IllegalArgumentException || error instanceof IllegalStateException;
+        }
+        handleFailure(email, error.getMessage(), permanent);
+    }
+
+    private void handleFailure(EmailOutbox email, String error, boolean permanent) {
+        String message = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        if (permanent || email.getAttempts() >= maxAttempts) {
+            logger.error("[EmailOutboxDispatcher] Email {} descartado tras {} intentos: {}", email.getId(), email.getAttempts(), error);
+            emailOutboxRepository.markFailed(email.getId(), email.getAttempts(), message);
+            return;
+        }
+        Duration delay = backoff(email.getAttempts());
+        logger.warn("[EmailOutboxDispatcher] Fallo enviando el email {} (intento {}), reintento en {}: {}",
+                email.getId(), email.getAttempts(), delay, error);
+        emailOutboxRepository.markRetry(email.getId(), email.getAttempts(), LocalDateTime.now().plus(delay), message);
+    }
+
+    private Duration backoff(int attempts) {
+        long base = initialBackoff.toMillis() << Math.min(Math.max(attempts - 1, 0), 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        // Jitter de ±20% para que los reintentos de una ráfaga no coincidan
+        long jitter = (long) (capped * 0.2 * (ThreadLocalRandom.current().nextDouble() * 2 - 1));
+        return Duration.ofMillis(Math.max(0, capped + jitter));
+    }
+}
@@ -0,0 +1,76 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.dto.EmailDeliveryDTO;
+import com.cartagenacorp.lm_oauth.entity.EmailOutbox;
+import com.cartagenacorp.lm_oauth.event.EmailQueuedEvent;
+import com.cartagenacorp.lm_oauth.exceptions.BaseException;
+import com.cartagenacorp.lm_oauth.repository.EmailOutboxRepository;
+import com.cartagenacorp.lm_oauth.util.ConstantUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+public class EmailOutboxService {
+
+    private static final TypeReference<Map<String, String>> VARIABLES_TYPE = new TypeReference<>() {
+    };
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public EmailOutboxService(EmailOutboxRepository emailOutboxRepository, ObjectMapper objectMapper,
+                              ApplicationEventPublisher eventPublisher) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Registra el email en la transacción actual. Si ya existe un mensaje con la misma {@code dedupKey}
+     * se devuelve ese en lugar de crear otro, también cuando dos llamadas concurrentes compiten por la clave.
+     */
+    @Transactional
+    public UUID enqueue(String dedupKey, String recipient, String template, Map<String, String> variables) {
+        UUID id = UUID.randomUUID();
+        if (emailOutboxRepository.insertIfAbsent(id, dedupKey, recipient, template, writeVariables(variables), LocalDateTime.now()) == 0) {
+            return emailOutboxRepository.findByDedupKey(dedupKey)
+                    .map(EmailOutbox::getId)
+                    .orElseThrow(() -> new IllegalStateException("Email con clave " + dedupKey + " no encontrado tras el conflicto"));
+        }
+        eventPublisher.publishEvent(new EmailQueuedEvent(id));
+        return id;
+    }
+
+    public EmailDeliveryDTO getDelivery(UUID id) {
+        EmailOutbox email = emailOutboxRepository.findById(id)
+                .orElseThrow(() -> new BaseException(ConstantUtil.RESOURCE_NOT_FOUND, HttpStatus.NOT_FOUND.value()));
+        return new EmailDeliveryDTO(email.getId(), email.getStatus().name(), email.getAttempts(),
+                email.getCreatedAt(), email.getSentAt());
+    }
+
+    Map<String, String> readVariables(EmailOutbox email) {
+        try {
+            return objectMapper.readValue(email.getVariables(), VARIABLES_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Variables ilegibles en el email " + email.getId(), e);
+        }
+    }
+
+    private String writeVariables(Map<String, String> variables) {
+        try {
+            return objectMapper.writeValueAsString(variables);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("No se pudieron serializar las variables del email", e);
+        }
+    }
+}
@@ -1,15 +1,15 @@
 package com.cartagenacorp.lm_oauth.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.services.ses.SesClient;
-import software.amazon.awssdk.services.ses.model.*;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class EmailService {
@@ -17,89 +17,66 @@ public class EmailService {
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
 
     private static final String COMPANY_NAME = "La Muralla";
+    private static final String LOCALE_VARIABLE = "locale";
 
-    @Value("${aws.ses.sender-email}")
-    private String senderEmail;
+    // Nombre de la plantilla OTP registrada en SES; vacío para renderizarla aquí y enviarla completa
+    @Value("${aws.ses.templates.otp:}")
+    private String otpSesTemplate;
 
-    private final SesClient sesClient;
+    private final SesSendScheduler sesSendScheduler;
+    private final EmailTemplateRegistry emailTemplateRegistry;
+    private final ObjectMapper objectMapper;
 
-    public EmailService(SesClient sesClient) {
-        this.sesClient = sesClient;
+    public EmailService(SesSendScheduler sesSendScheduler, EmailTemplateRegistry emailTemplateRegistry,
+                        ObjectMapper objectMapper) {
+        this.sesSendScheduler = sesSendScheduler;
+        this.emailTemplateRegistry = emailTemplateRegistry;
+        this.objectMapper = objectMapper;
     }
 
-    public void sendEmail(String recipientEmail, String subject, String bodyHtml, String bodyText) {
-        try {
-            logger.info("=== [EmailService] Iniciando flujo de envio de email ===");
-            Content subjectContent = Content.builder()
-                    .data(subject)
-                    .charset("UTF-8")
-                    .build();
-
-            Content bodyHtmlContent = Content.builder()
-                    .data(bodyHtml)
-                    .charset("UTF-8")
-                    .build();
-
-            Content bodyTextContent = Content.builder()
-                    .data(bodyText)
-                    .charset("UTF-8")
-                    .build();
-
-            Body emailBody = Body.builder()
-                    .html(bodyHtmlContent)
-                    .text(bodyTextContent)
-                    .build();
-
-            Message message = Message.builder()
-                    .subject(subjectContent)
-                    .body(emailBody)
-                    .build();
-
-            SendEmailRequest sendEmailRequest = SendEmailRequest.builder()
-                    .source(senderEmail)
-                    .destination(Destination.builder()
-                            .toAddresses(recipientEmail)
-                            .build())
-                    .message(message)
-                    .build();
+    public CompletableFuture<String> sendEmail(String recipientEmail, String subject, String bodyHtml, String bodyText) {
+        logger.info("[EmailService] Encolando email para AWS SES a {}", recipientEmail);
+        return sesSendScheduler.submit(SesSendScheduler.OutboundEmail.raw(recipientEmail, subject, bodyHtml, bodyText))
+                .thenApply(messageId -> {
+                    logger.info("[EmailService] Email enviado via AWS SES con ID: {}", messageId);
+                    return messageId;
+                });
+    }
 
-            logger.info("[EmailService] Enviando email via AWS SES a {}", recipientEmail);
-            SendEmailResponse response = sesClient.sendEmail(sendEmailRequest);
-            logger.info("[EmailService] Email enviado via AWS SES con ID: {}", response.messageId());
-            logger.info("=== [EmailService] Flujo de envio de email finalizado correctamente ===");
-        } catch (SesException e) {
-            logger.error("[EmailService] Error al enviar email via AWS SES: {}", e.awsErrorDetails().errorMessage());
-            throw e;
+    public CompletableFuture<String> sendOtpEmail(String recipientEmail, String otp, String locale) {
+        if (!otpSesTemplate.isBlank()) {
+            try {
+                String templateData = objectMapper.writeValueAsString(Map.of("OTP", otp, "COMPANY", COMPANY_NAME));
+                return sesSendScheduler.submit(SesSendScheduler.OutboundEmail.templated(recipientEmail, otpSesTemplate, templateData));
+            } catch (JsonProcessingException e) {
+                return CompletableFuture.failedFuture(e);
+            }
         }
+        return sendTemplate(recipientEmail, EmailTemplateRegistry.EmailTemplate.OTP, locale, Map.of("OTP", otp));
     }
 
-    public void sendOtpEmail(String recipientEmail, String otp) throws IOException {
-        String subject = "Tu código de verificación";
-
-        String bodyHtml;
-        try {
-            bodyHtml = loadTemplate("static/otp-template.html")
-                    .replace("{{OTP}}", otp)
-                    .replace("{{COMPANY}}", COMPANY_NAME);
-        } catch (IOException e) {
-            logger.error("[EmailService] Error al cargar la plantilla de email: {}", e.getMessage());
-            throw e;
+    /**
+     * Envía un email del outbox a partir del nombre de plantilla y sus variables. La variable {@code locale}
+     * elige el idioma de la plantilla.
+     */
+    public CompletableFuture<String> sendTemplate(String recipientEmail, String template, Map<String, String> variables) {
+        EmailTemplateRegistry.EmailTemplate emailTemplate = EmailTemplateRegistry.EmailTemplate.from(template);
+        String locale = variables.get(LOCALE_VARIABLE);
+        if (emailTemplate == EmailTemplateRegistry.EmailTemplate.OTP) {
+            return sendOtpEmail(recipientEmail, variables.get("otp"), locale);
         }
-
-        String bodyText = String.format(
-                "Código de Verificación\nTu código de un solo uso (OTP) es: %s\nExpira en 2 minutos.\n%s",
-                otp, COMPANY_NAME
-        );
-
-        sendEmail(recipientEmail, subject, bodyHtml, bodyText);
+        return sendTemplate(recipientEmail, emailTemplate, locale, variables);
     }
 
-    private String loadTemplate(String path) throws IOException {
-        ClassPathResource resource = new ClassPathResource(path);
-        return new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    private CompletableFuture<String> sendTemplate(String recipientEmail, EmailTemplateRegistry.EmailTemplate template,
+                                                   String locale, Map<String, String> variables) {
+        Map<String, String> values = new HashMap<>(variables);
+        values.putIfAbsent("COMPANY", COMPANY_NAME);
+        EmailTemplateRegistry.RenderedEmail email = emailTemplateRegistry.render(template, locale, values);
+        return sendEmail(recipientEmail, email.subject(), email.bodyHtml(), email.bodyText());
     }
 
     public void shutdown() {
-        sesClient.close();
+        sesSendScheduler.stop();
     }
 }
@@ -0,0 +1,131 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.util.CompiledTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Plantillas de email compiladas al arrancar desde {@code templates/email/<plantilla>/<idioma>.(subject|html|txt)}.
+ * Si falta o no se puede leer alguna variante el arranque falla, en lugar de fallar con el primer envío.
+ */
+@Component
+public class EmailTemplateRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplateRegistry.class);
+
+    private static final String BASE_PATH = "templates/email/";
+
+    /**
+     * Cada plantilla declara las variables que le entregan sus llamadores; COMPANY la añade siempre
+     * {@link EmailService}. Una variante que use un marcador fuera de esa lista hace fallar el arranque.
+     */
+    public enum EmailTemplate {
+        OTP("otp", "OTP", "COMPANY"),
+        PASSWORD_RESET("password-reset", "RESET_URL", "COMPANY"),
+        INVITATION("invitation", "INVITE_URL", "ORGANIZATION", "COMPANY");
+
+        private final String id;
+        private final Set<String> variables;
+
+        EmailTemplate(String id, String... variables) {
+            this.id = id;
+            this.variables = Set.of(variables);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Set<String> getVariables() {
+            return variables;
+        }
+
+        public static EmailTemplate from(String id) {
+            for (EmailTemplate template : values()) {
+                if (template.id.equals(id)) {
+                    return template;
+                }
+            }
+            throw new IllegalArgumentException("Plantilla de email desconocida: " + id);
+        }
+    }
+
+    public record RenderedEmail(String subject, String bodyHtml, String bodyText) {
+    }
+
+    private record Variant(CompiledTemplate subject, CompiledTemplate html, CompiledTemplate text) {
+    }
+
+    private final String defaultLocale;
+    private final Map<EmailTemplate, Map<String, Variant>> variants = new EnumMap<>(EmailTemplate.class);
+
+    public EmailTemplateRegistry(@Value("${app.email.templates.locales:es,en}") List<String> locales,
+                                 @Value("${app.email.templates.default-locale:es}") String defaultLocale) {
+        if (!locales.contains(defaultLocale)) {
+            throw new IllegalStateException("app.email.templates.default-locale no está en app.email.templates.locales: " + defaultLocale);
+        }
+        this.defaultLocale = defaultLocale;
+        for (EmailTemplate template : EmailTemplate.values()) {
+            Map<String, Variant> byLocale = new HashMap<>();
+            for (String locale : locales) {
+                byLocale.put(locale, load(template, locale));
+            }
+            variants.put(template, byLocale);
+        }
+        logger.info("[EmailTemplateRegistry] {} plantillas de email cargadas para los idiomas {}", variants.size(), locales);
+    }
+
+    /**
+     * Renderiza la plantilla en el idioma pedido, o en el idioma por defecto si no existe esa variante.
+     */
+    public RenderedEmail render(EmailTemplate template, String locale, Map<String, String> variables) {
+        Map<String, Variant> byLocale = variants.get(template);
+        Variant variant = byLocale.get(language(locale));
+        if (variant == null) {
+            variant = byLocale.get(defaultLocale);
+        }
+        return new RenderedEmail(variant.subject().render(variables), variant.html().render(variables),
+                variant.text().render(variables));
+    }
+
+    private static String language(String locale) {
+        if (locale == null || locale.isBlank()) {
+            return "";
+        }
+        return Locale.forLanguageTag(locale.replace('_', '-')).getLanguage();
+    }
+
+    private static Variant load(EmailTemplate template, String locale) {
+        String path = BASE_PATH + template.getId() + "/" + locale;
+        return new Variant(
+                compile(template, path + ".subject", read(path + ".subject").strip(), false),
+                compile(template, path + ".html", read(path + ".html"), true),
+                compile(template, path + ".txt", read(path + ".txt"), false));
+    }
+
+    private static CompiledTemplate compile(EmailTemplate template, String path, String source, boolean escapeHtml) {
+        CompiledTemplate compiled = CompiledTemplate.compile(path, source, escapeHtml);
+        Set<String> unknown = new LinkedHashSet<>(compiled.getPlaceholders());
+        unknown.removeAll(template.getVariables());
+        if (!unknown.isEmpty()) {
+            throw new IllegalStateException("La plantilla de email " + path + " usa variables que no recibe: " + unknown);
+        }
+        return compiled;
+    }
+
+    private static String read(String path) {
+        try (InputStream inputStream = new ClassPathResource(path).getInputStream()) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo cargar la plantilla de email " + path, e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.exceptions.BaseException;
+import com.cartagenacorp.lm_oauth.util.ConstantUtil;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Envuelve las llamadas a servicios externos con un bulkhead (límite de llamadas concurrentes) y un
+ * circuit breaker por dependencia. Cuando alguno rechaza la llamada se responde de inmediato con 503
+ * en lugar de ocupar un hilo del servlet esperando al servicio caído.
+ */
+@Component
+public class ExternalCallGuard {
+
+    public static final String ROLE_SERVICE = "roleService";
+    public static final String ORGANIZATION_SERVICE = "organizationService";
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalCallGuard.class);
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final MeterRegistry meterRegistry;
+
+    public ExternalCallGuard(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                             MeterRegistry meterRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T execute(String dependency, Supplier<T> call) {
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(dependency);
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(dependency);
+        try {
+            return Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker, call)).get();
+        } catch (CallNotPermittedException ex) {
+            logger.warn("Circuito abierto para {}, se rechaza la llamada", dependency);
+            rejected(dependency, "circuit_open").increment();
+            throw new BaseException(ConstantUtil.ACCESS_EXCEPTION, HttpStatus.SERVICE_UNAVAILABLE.value());
+        } catch (BulkheadFullException ex) {
+            logger.warn("Bulkhead lleno para {}, se rechaza la llamada", dependency);
+            rejected(dependency, "bulkhead_full").increment();
+            throw new BaseException(ConstantUtil.ACCESS_EXCEPTION, HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+    }
+
+    private Counter rejected(String dependency, String reason) {
+        return Counter.builder("external.calls.rejected")
+                .tag("dependency", dependency)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,234 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.entity.Otp;
+import com.cartagenacorp.lm_oauth.util.TimingWheel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OTP activas en memoria, indexadas por {@code hashObject}. Un timing wheel retira las entradas al vencer
+ * el {@code timeToLive} de su funcionalidad y cada cambio de estado se audita en {@link OtpAuditLog}, sin
+ * pasar por Postgres al generar ni al validar.
+ * <p>
+ * El estado es local al nodo: con varias réplicas la validación debe llegar al nodo que generó la OTP.
+ */
+@Component
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "memory")
+public class InMemoryOtpStore implements OtpStore, SmartLifecycle, HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryOtpStore.class);
+
+    private static final class Entry {
+        private final String id;
+        private final String email;
+        private final String hashObject;
+        private final String functionality;
+        private final byte[] codeCipher;
+        private final LocalDateTime expiresAt;
+        private final int attemptLimit;
+        private int attempts;
+        private boolean active = true;
+        private TimingWheel.Timeout<Entry> timeout;
+
+        private Entry(Otp otp) {
+            this.id = UUID.randomUUID().toString();
+            this.email = otp.getEmail();
+            this.hashObject = otp.getHashObject();
+            this.functionality = otp.getOtpFunctionality().getName();
+            this.codeCipher = otp.getCodeCipher().getBytes(StandardCharsets.UTF_8);
+            this.expiresAt = otp.getCreated().plusSeconds(otp.getOtpFunctionality().getTimeToLive());
+            this.attemptLimit = otp.getOtpFunctionality().getAttemptLimit();
+            this.attempts = otp.getAttempt();
+        }
+    }
+
+    private final Map<String, Entry> byHash = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byEmail = new ConcurrentHashMap<>();
+    private final TimingWheel<Entry> wheel;
+    private final OtpAuditLog auditLog;
+    private final Duration tick;
+
+    private volatile boolean running = false;
+    private Thread reaperThread;
+
+    public InMemoryOtpStore(ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.otp.memory.tick:PT1S}") Duration tick,
+                            @Value("${app.otp.memory.wheel-size:64}") int wheelSize,
+                            @Value("${app.otp.memory.audit-log:otp-audit.log}") Path auditLogPath,
+                            @Value("${app.otp.memory.audit-queue-capacity:10000}") int auditQueueCapacity) {
+        this.tick = tick;
+        this.wheel = new TimingWheel<>(tick.toMillis(), wheelSize, System.currentTimeMillis());
+        this.auditLog = new OtpAuditLog(auditLogPath, auditQueueCapacity, objectMapper, meterRegistry);
+        Gauge.builder("otp.memory.active", byHash, Map::size)
+                .description("OTP activas en memoria")
+                .register(meterRegistry);
+        Gauge.builder("otp.memory.scheduled", wheel, TimingWheel::size)
+                .description("Entradas pendientes en el timing wheel, incluidas las ya retiradas")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String issue(Otp otp) {
+        Entry entry = new Entry(otp);
+        entry.timeout = wheel.schedule(entry, entry.expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        // compute serializa las emisiones del mismo email
+        byEmail.compute(entry.email, (email, previous) -> {
+            if (previous != null && deactivate(previous)) {
+                byHash.remove(previous.hashObject, previous);
+                audit("SUPERSEDED", previous);
+            }
+            byHash.put(entry.hashObject, entry);
+            return entry;
+        });
+        audit("ISSUED", entry);
+        return entry.id;
+    }
+
+    @Override
+    public Optional<Outcome> consumeAttempt(String hashObject, String functionality, String codeCipher, LocalDateTime now) {
+        Entry entry = byHash.get(hashObject);
+        if (entry == null || !entry.functionality.equals(functionality)) {
+            return Optional.empty();
+        }
+        Outcome outcome;
+        synchronized (entry) {
+            if (!entry.active) {
+                return Optional.empty();
+            }
+            entry.attempts++;
+            // Mismo orden de comprobaciones que la validación en base de datos
+            if (entry.attempts >= entry.attemptLimit) {
+                outcome = Outcome.ATTEMPTS_EXCEEDED;
+            } else if (now.isAfter(entry.expiresAt)) {
+                outcome = Outcome.EXPIRED;
+            } else if (MessageDigest.isEqual(entry.codeCipher, codeCipher.getBytes(StandardCharsets.UTF_8))) {
+                outcome = Outcome.VALID;
+            } else {
+                outcome = Outcome.INVALID;
+            }
+            if (outcome != Outcome.INVALID) {
+                entry.active = false;
+            }
+        }
+        audit(outcome.name(), entry);
+        if (outcome != Outcome.INVALID) {
+            unlink(entry);
+        }
+        return Optional.of(outcome);
+    }
+
+    @Override
+    public boolean isRedeemable(String hashObject, String functionality, String codeCipher, LocalDateTime now) {
+        Entry entry = byHash.get(hashObject);
+        if (entry == null || !entry.functionality.equals(functionality)) {
+            return false;
+        }
+        synchronized (entry) {
+            return entry.active
+                    && entry.attempts + 1 < entry.attemptLimit
+                    && !now.isAfter(entry.expiresAt)
+                    && MessageDigest.isEqual(entry.codeCipher, codeCipher.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        auditLog.start();
+        reaperThread = new Thread(this::reap, "otp-reaper");
+        reaperThread.setDaemon(true);
+        reaperThread.start();
+        logger.info("[InMemoryOtpStore] Almacenamiento de OTP en memoria activo");
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (reaperThread != null) {
+            reaperThread.interrupt();
+            reaperThread = null;
+        }
+        auditLog.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // El registro de auditoría es la única traza duradera de estas OTP: si no se puede escribir se marca DOWN
+    @Override
+    public Health health() {
+        String auditError = auditLog.lastError();
+        if (auditError == null) {
+            return Health.up().withDetail("active", byHash.size()).build();
+        }
+        return Health.down()
+                .withDetail("active", byHash.size())
+                .withDetail("auditError", auditError)
+                .withDetail("auditFailingSince", String.valueOf(auditLog.failingSince()))
+                .build();
+    }
+
+    private void reap() {
+        while (running) {
+            try {
+                Thread.sleep(tick.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (Entry entry : wheel.advance(System.currentTimeMillis())) {
+                if (deactivate(entry)) {
+                    unlink(entry);
+                    audit("EXPIRED", entry);
+                }
+            }
+        }
+    }
+
+    private boolean deactivate(Entry entry) {
+        synchronized (entry) {
+            if (!entry.active) {
+                return false;
+            }
+            entry.active = false;
+        }
+        entry.timeout.cancel();
+        return true;
+    }
+
+    private void unlink(Entry entry) {
+        entry.timeout.cancel();
+        byHash.remove(entry.hashObject, entry);
+        byEmail.remove(entry.email, entry);
+    }
+
+    private void audit(String event, Entry entry) {
+        auditLog.append(event, entry.id, entry.email, entry.functionality, entry.attempts);
+    }
+}
@@ -0,0 +1,36 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.entity.Otp;
+import com.cartagenacorp.lm_oauth.repository.OtpRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "database", matchIfMissing = true)
+public class JpaOtpStore implements OtpStore {
+
+    private final OtpRepository otpRepository;
+
+    public JpaOtpStore(OtpRepository otpRepository) {
+        this.otpRepository = otpRepository;
+    }
+
+    @Override
+    public String issue(Otp otp) {
+        otpRepository.deactivateAllActiveOtps(otp.getEmail());
+        return otpRepository.save(otp).getId().toString();
+    }
+
+    @Override
+    public Optional<Outcome> consumeAttempt(String hashObject, String functionality, String codeCipher, LocalDateTime now) {
+        return otpRepository.consumeAttempt(hashObject, functionality, codeCipher, now).map(Outcome::valueOf);
+    }
+
+    @Override
+    public boolean isRedeemable(String hashObject, String functionality, String codeCipher, LocalDateTime now) {
+        return otpRepository.isRedeemable(hashObject, functionality, codeCipher, now);
+    }
+}
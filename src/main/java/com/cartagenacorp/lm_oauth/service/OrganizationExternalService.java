@@ -4,6 +4,7 @@ import com.cartagenacorp.lm_oauth.exceptions.BaseException;
 import com.cartagenacorp.lm_oauth.util.ConstantUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -23,8 +24,12 @@ public class OrganizationExternalService {
 
     private final RestTemplate restTemplate;
 
-    public OrganizationExternalService(RestTemplate restTemplate) {
+    private final ExternalCallGuard externalCallGuard;
+
+    public OrganizationExternalService(@Qualifier("organizationRestTemplate") RestTemplate restTemplate,
+                                       ExternalCallGuard externalCallGuard) {
         this.restTemplate = restTemplate;
+        this.externalCallGuard = externalCallGuard;
     }
 
     public boolean organizationExists(UUID organizationId, String token) {
@@ -36,12 +41,13 @@ public class OrganizationExternalService {
             headers.setBearerAuth(token);
             HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
 
-            ResponseEntity<Boolean> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    requestEntity,
-                    Boolean.class
-            );
+            ResponseEntity<Boolean> response = externalCallGuard.execute(ExternalCallGuard.ORGANIZATION_SERVICE,
+                    () -> restTemplate.exchange(
+                            url,
+                            HttpMethod.GET,
+                            requestEntity,
+                            Boolean.class
+                    ));
             boolean exists = Boolean.TRUE.equals(response.getBody());
             logger.info("Resultado de validación de la organización con ID {}: {}", organizationId, exists);
             return exists;
@@ -56,6 +62,8 @@ public class OrganizationExternalService {
         } catch (ResourceAccessException ex) {
             logger.warn("El servicio externo no esta disponible: {}",ex.getMessage());
             throw new BaseException(ConstantUtil.ACCESS_EXCEPTION, HttpStatus.SERVICE_UNAVAILABLE.value());
+        } catch (BaseException ex) {
+            throw ex;
         } catch (Exception ex) {
             logger.error("Error al validar organización con ID {}: {}", organizationId, ex.getMessage(), ex);
             throw new RuntimeException("Error al validar organización con ID: " + organizationId, ex);
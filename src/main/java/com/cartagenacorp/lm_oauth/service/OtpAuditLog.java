@@ -0,0 +1,206 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro de auditoría de solo escritura para {@link InMemoryOtpStore}. Los eventos se encolan sin
+ * bloquear y un hilo propio los añade al fichero en NDJSON por lotes. Nunca se escribe el código ni su cifrado.
+ */
+class OtpAuditLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(OtpAuditLog.class);
+
+    private static final long MIN_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    record OtpAuditEvent(Instant timestamp, String event, String otpId, String email, String functionality, int attempt) {
+    }
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<OtpAuditEvent> queue;
+    private final Counter dropped;
+
+    private volatile boolean running = false;
+    private volatile String lastError;
+    private volatile Instant failingSince;
+    private Thread writerThread;
+
+    OtpAuditLog(Path path, int queueCapacity, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.dropped = Counter.builder("otp.audit.dropped")
+                .description("Eventos de auditoría de OTP que no llegaron al fichero")
+                .register(meterRegistry);
+    }
+
+    void append(String event, String otpId, String email, String functionality, int attempt) {
+        if (!queue.offer(new OtpAuditEvent(Instant.now(), event, otpId, email, functionality, attempt))) {
+            dropped.increment();
+        }
+    }
+
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::write, "otp-audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    synchronized void stop() {
+        running = false;
+        if (writerThread != null) {
+            writerThread.interrupt();
+            writerThread = null;
+        }
+    }
+
+    /**
+     * Estado del escritor: null si el último lote se escribió bien, o el error con el que sigue fallando.
+     */
+    String lastError() {
+        return lastError;
+    }
+
+    Instant failingSince() {
+        return failingSince;
+    }
+
+    /**
+     * Un fallo de E/S no detiene el hilo: el lote se conserva, se cierra el fichero y se reintenta con
+     * backoff exponencial reabriéndolo. Un evento que no se puede serializar se descarta solo, sin afectar
+     * al resto del lote. Si el fallo ocurre a mitad de lote, al reintentar pueden repetirse algunas líneas.
+     */
+    private void write() {
+        BufferedWriter writer = null;
+        List<OtpAuditEvent> batch = new ArrayList<>();
+        long backoff = MIN_BACKOFF_MILLIS;
+        try {
+            while (running || !queue.isEmpty() || !batch.isEmpty()) {
+                if (batch.isEmpty()) {
+                    OtpAuditEvent first = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch);
+                }
+                try {
+                    if (writer == null) {
+                        writer = open();
+                    }
+                    writeBatch(writer, batch);
+                    batch.clear();
+                    backoff = MIN_BACKOFF_MILLIS;
+                    recovered();
+                } catch (IOException e) {
+                    closeQuietly(writer);
+                    writer = null;
+                    failed(e);
+                    if (!running) {
+                        // En la parada no se espera a que el disco se recupere: un último intento y se sale.
+                        // La interrupción de la parada puede haber cerrado el canal; se limpia para reintentar
+                        Thread.interrupted();
+                        flushRemaining(batch);
+                        batch.clear();
+                        break;
+                    }
+                    Thread.sleep(backoff);
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Parada: se vacía lo pendiente antes de salir
+            Thread.currentThread().interrupt();
+            closeQuietly(writer);
+            writer = null;
+            flushRemaining(batch);
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private BufferedWriter open() throws IOException {
+        return Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+    }
+
+    private void writeBatch(BufferedWriter writer, List<OtpAuditEvent> batch) throws IOException {
+        for (OtpAuditEvent event : batch) {
+            String line;
+            try {
+                line = objectMapper.writeValueAsString(event);
+            } catch (JsonProcessingException e) {
+                dropped.increment();
+                logger.error("[OtpAuditLog] Evento de auditoría no serializable: {}", e.getMessage());
+                continue;
+            }
+            writer.write(line);
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    private void failed(IOException e) {
+        if (lastError == null) {
+            failingSince = Instant.now();
+            logger.error("[OtpAuditLog] No se pudo escribir el registro de auditoría {}, se reintentará: {}", path, e.getMessage());
+        }
+        lastError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private void recovered() {
+        if (lastError != null) {
+            logger.info("[OtpAuditLog] Registro de auditoría {} recuperado tras fallar desde {}", path, failingSince);
+            lastError = null;
+            failingSince = null;
+        }
+    }
+
+    private void flushRemaining(List<OtpAuditEvent> pending) {
+        List<OtpAuditEvent> remaining = new ArrayList<>(pending);
+        queue.drainTo(remaining);
+        if (remaining.isEmpty()) {
+            return;
+        }
+        try (BufferedWriter writer = open()) {
+            writeBatch(writer, remaining);
+        } catch (IOException e) {
+            dropped.increment(remaining.size());
+            logger.error("[OtpAuditLog] No se pudo escribir el registro de auditoría {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(BufferedWriter writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            // El fichero se reabre en el siguiente intento
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.entity.OtpFunctionality;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationBus;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationMessage;
+import com.cartagenacorp.lm_oauth.repository.OtpFunctionalityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Catálogo en memoria de {@link OtpFunctionality}. Se carga al arrancar, se refresca periódicamente y
+ * puede recargarse a mano. El arranque falla si falta alguna funcionalidad de
+ * {@code app.otp.functionalities.required} (vacío por defecto); un catálogo vacío solo se avisa, ya que
+ * en una base de datos nueva la tabla aún no tiene datos.
+ */
+@Component
+public class OtpFunctionalityCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(OtpFunctionalityCatalog.class);
+
+    private final OtpFunctionalityRepository otpFunctionalityRepository;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final List<String> required;
+
+    private volatile Map<String, OtpFunctionality> functionalities;
+
+    public OtpFunctionalityCatalog(OtpFunctionalityRepository otpFunctionalityRepository,
+                                   CacheInvalidationBus cacheInvalidationBus,
+                                   @Value("${app.otp.functionalities.required:}") List<String> required) {
+        this.otpFunctionalityRepository = otpFunctionalityRepository;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.required = required.stream().map(String::trim).filter(name -> !name.isEmpty()).toList();
+        this.functionalities = load();
+        logger.info("[OtpFunctionalityCatalog] {} funcionalidades OTP cargadas", functionalities.size());
+    }
+
+    public Optional<OtpFunctionality> findByName(String name) {
+        return Optional.ofNullable(functionalities.get(name));
+    }
+
+    /**
+     * Recarga el catálogo en este nodo y avisa al resto de réplicas.
+     */
+    public int reload() {
+        functionalities = load();
+        cacheInvalidationBus.publish(CacheInvalidationMessage.otpFunctionalities());
+        logger.info("[OtpFunctionalityCatalog] Catálogo recargado: {} funcionalidades OTP", functionalities.size());
+        return functionalities.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.otp.functionalities.refresh-interval:PT5M}",
+            initialDelayString = "${app.otp.functionalities.refresh-interval:PT5M}")
+    public void refresh() {
+        refreshLocal();
+    }
+
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationMessage message) {
+        switch (message.type()) {
+            case OTP_FUNCTIONALITIES, ALL -> refreshLocal();
+            default -> { }
+        }
+    }
+
+    private void refreshLocal() {
+        try {
+            functionalities = load();
+        } catch (DataAccessException | IllegalStateException e) {
+            // Se mantiene el catálogo anterior hasta el siguiente refresco
+            logger.warn("[OtpFunctionalityCatalog] No se pudo refrescar el catálogo de funcionalidades OTP: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, OtpFunctionality> load() {
+        Map<String, OtpFunctionality> loaded = otpFunctionalityRepository.findAll().stream()
+                .collect(Collectors.toUnmodifiableMap(OtpFunctionality::getName, Function.identity()));
+        // Sin funcionalidades ningún flujo con OTP funciona, pero el resto de la aplicación sí
+        if (loaded.isEmpty()) {
+            logger.warn("[OtpFunctionalityCatalog] No hay funcionalidades OTP en otp_functionality");
+        }
+        List<String> missing = required.stream().filter(name -> !loaded.containsKey(name)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Funcionalidades OTP requeridas no encontradas: " + missing);
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,39 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.repository.OtpPartitionRepository;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * La tabla {@code otp} particionada no tiene partición DEFAULT (impediría el DETACH CONCURRENTLY de la
+ * retención), así que una OTP fuera de las particiones creadas no se puede insertar. Este indicador avisa en
+ * cuanto hoy deja de estar cubierto y expone cuántos días quedan por delante.
+ */
+@Component
+public class OtpPartitionHealthIndicator implements HealthIndicator {
+
+    private final OtpPartitionRepository otpPartitionRepository;
+
+    public OtpPartitionHealthIndicator(OtpPartitionRepository otpPartitionRepository) {
+        this.otpPartitionRepository = otpPartitionRepository;
+    }
+
+    @Override
+    public Health health() {
+        Optional<LocalDate> lastDay = otpPartitionRepository.lastPartitionDay();
+        if (lastDay.isEmpty()) {
+            return Health.up().withDetail("partitioned", false).build();
+        }
+        LocalDate today = LocalDate.now();
+        Health.Builder builder = lastDay.get().isBefore(today) ? Health.down() : Health.up();
+        return builder
+                .withDetail("partitioned", true)
+                .withDetail("lastPartitionDay", lastDay.get().toString())
+                .withDetail("daysAhead", today.until(lastDay.get()).getDays())
+                .build();
+    }
+}
@@ -0,0 +1,225 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.repository.OtpPartitionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Retención de la tabla {@code otp}. Con particionado activo la tabla se divide por días de {@code created},
+ * se crean por adelantado las particiones de los próximos días y se eliminan enteras las que superan el
+ * periodo de retención. Sin particionado se borran las filas antiguas en lotes pequeños.
+ * <p>
+ * La conversión a particionada es una operación explícita ({@link #requestPartitioning()}) y solo está
+ * disponible con {@code app.otp.retention.partitioning}: cambia el esquema sin vuelta atrás y el histórico
+ * queda en {@link OtpPartitionRepository#LEGACY_TABLE}, fuera del alcance de la aplicación.
+ * <p>
+ * El DDL y los borrados se ejecutan en un hilo propio, ni en el de arranque ni en el de {@code @Scheduled}.
+ * Solo trabaja el nodo que obtiene el advisory lock; los demás se saltan la ejecución.
+ */
+@Service
+public class OtpRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OtpRetentionService.class);
+
+    private final OtpPartitionRepository otpPartitionRepository;
+    private final boolean enabled;
+    private final boolean partitioning;
+    private final Period keep;
+    private final int premakeDays;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration batchPause;
+    private final Duration lockTimeout;
+    private final ThreadPoolExecutor executor;
+
+    public OtpRetentionService(OtpPartitionRepository otpPartitionRepository,
+                               @Value("${app.otp.retention.enabled:true}") boolean enabled,
+                               @Value("${app.otp.retention.partitioning:false}") boolean partitioning,
+                               @Value("${app.otp.retention.keep:P30D}") Period keep,
+                               @Value("${app.otp.retention.premake-days:7}") int premakeDays,
+                               @Value("${app.otp.retention.batch-size:1000}") int batchSize,
+                               @Value("${app.otp.retention.max-batches:100}") int maxBatches,
+                               @Value("${app.otp.retention.batch-pause:PT0.1S}") Duration batchPause,
+                               @Value("${app.otp.retention.lock-timeout:PT2S}") Duration lockTimeout) {
+        this.otpPartitionRepository = otpPartitionRepository;
+        this.enabled = enabled;
+        this.partitioning = partitioning;
+        this.keep = keep;
+        this.premakeDays = premakeDays;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.batchPause = batchPause;
+        this.lockTimeout = lockTimeout;
+        // Un solo hilo y sin cola: una operación de mantenimiento a la vez en este nodo
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "otp-maintenance");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepare() {
+        if (!enabled) {
+            // Sin este job nadie crea las particiones de los próximos días y las inserciones de OTP empezarán a fallar
+            if (otpPartitionRepository.lastPartitionDay().isPresent()) {
+                logger.error("[OtpRetentionService] La tabla otp está particionada pero la retención está desactivada; "
+                        + "no se crearán nuevas particiones");
+            }
+            return;
+        }
+        // Los índices CONCURRENTLY pueden tardar minutos en una tabla grande: no se retiene el arranque
+        submit(session -> {
+            if (!session.isPartitioned()) {
+                session.createIndexesConcurrently("otp");
+            }
+        });
+    }
+
+    /**
+     * Lanza en segundo plano la conversión de {@code otp} a particionada. Devuelve false si el particionado o la
+     * retención (que crea las particiones de los próximos días) no están habilitados, o si ya hay una operación
+     * de mantenimiento en curso en este nodo.
+     */
+    public boolean requestPartitioning() {
+        if (!enabled || !partitioning) {
+            return false;
+        }
+        return submit(session -> {
+            if (session.isPartitioned()) {
+                logger.info("[OtpRetentionService] La tabla otp ya está particionada");
+                return;
+            }
+            // La copia de las OTP activas bajo ACCESS EXCLUSIVE debe usar el índice por fecha, no recorrer la tabla
+            session.createIndexesConcurrently("otp");
+            LocalDate today = LocalDate.now();
+            // Las OTP viven minutos: basta con conservar en la tabla nueva las activas desde ayer
+            session.migrateToPartitioned(today.minusDays(1), today.plusDays(premakeDays));
+            logger.info("[OtpRetentionService] Tabla otp convertida a particionada por día; histórico en {}",
+                    OtpPartitionRepository.LEGACY_TABLE);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${app.otp.retention.interval:PT1H}", initialDelayString = "${app.otp.retention.interval:PT1H}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        // Los lotes con pausa pueden durar minutos: no se ocupa el hilo compartido de @Scheduled
+        submit(session -> {
+            LocalDateTime cutoff = LocalDate.now().minus(keep).atStartOfDay();
+            if (session.isPartitioned()) {
+                maintainPartitions(session, cutoff.toLocalDate());
+                if (session.tableExists(OtpPartitionRepository.LEGACY_TABLE)) {
+                    deleteInBatches(session, OtpPartitionRepository.LEGACY_TABLE, cutoff);
+                    if (session.isEmpty(OtpPartitionRepository.LEGACY_TABLE)) {
+                        session.dropTable(OtpPartitionRepository.LEGACY_TABLE);
+                        logger.info("[OtpRetentionService] Tabla {} vacía eliminada", OtpPartitionRepository.LEGACY_TABLE);
+                    }
+                }
+            } else {
+                deleteInBatches(session, "otp", cutoff);
+            }
+        });
+    }
+
+    private void maintainPartitions(OtpPartitionRepository.Session session, LocalDate cutoffDay) {
+        // Un DETACH CONCURRENTLY interrumpido bloquea cualquier otro DETACH hasta que se finaliza
+        for (LocalDate day : session.pendingDetachDays()) {
+            session.finalizeDetach(day);
+            logger.info("[OtpRetentionService] Separación pendiente de la partición de OTP del {} finalizada", day);
+        }
+        for (LocalDate day : session.orphanPartitionDays()) {
+            session.dropDetachedPartition(day);
+            logger.info("[OtpRetentionService] Partición de OTP separada del {} eliminada", day);
+        }
+
+        List<LocalDate> existing = session.partitionDays();
+        LocalDate today = LocalDate.now();
+        for (LocalDate day = today; !day.isAfter(today.plusDays(premakeDays)); day = day.plusDays(1)) {
+            if (!existing.contains(day)) {
+                session.createPartition(day);
+                logger.info("[OtpRetentionService] Partición de OTP creada para {}", day);
+            }
+        }
+        for (LocalDate day : existing) {
+            // Una partición diaria se elimina cuando todo su rango queda fuera de la retención
+            if (day.plusDays(1).isAfter(cutoffDay)) {
+                break;
+            }
+            try {
+                session.dropPartition(day);
+                logger.info("[OtpRetentionService] Partición de OTP del {} eliminada", day);
+            } catch (DataAccessException e) {
+                // Si quedó pendiente de separar se finaliza en la siguiente ejecución; las demás siguen su curso
+                logger.warn("[OtpRetentionService] No se pudo eliminar la partición de OTP del {}: {}", day, e.getMessage());
+            }
+        }
+    }
+
+    private void deleteInBatches(OtpPartitionRepository.Session session, String table, LocalDateTime cutoff) {
+        int total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int deleted = session.deleteOlderThan(table, cutoff, batchSize);
+            total += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(batchPause.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.info("[OtpRetentionService] {} OTP anteriores a {} eliminadas de {}", total, cutoff, table);
+        }
+    }
+
+    private boolean submit(Consumer<OtpPartitionRepository.Session> work) {
+        try {
+            executor.execute(() -> run(work));
+            return true;
+        } catch (RejectedExecutionException e) {
+            logger.debug("[OtpRetentionService] Ya hay una operación de mantenimiento de OTP en curso");
+            return false;
+        }
+    }
+
+    private void run(Consumer<OtpPartitionRepository.Session> work) {
+        try {
+            if (!otpPartitionRepository.runExclusive(lockTimeout, work)) {
+                logger.debug("[OtpRetentionService] Mantenimiento de OTP en curso en otro nodo");
+            }
+        } catch (DataAccessException | IllegalStateException e) {
+            // Un lock_timeout u otro fallo no debe afectar a la aplicación; se reintenta en la siguiente ejecución
+            logger.warn("[OtpRetentionService] Mantenimiento de OTP no completado: {}", e.getMessage());
+        }
+    }
+}
@@ -8,20 +8,22 @@ import com.cartagenacorp.lm_oauth.entity.Otp;
 import com.cartagenacorp.lm_oauth.entity.OtpFunctionality;
 import com.cartagenacorp.lm_oauth.entity.User;
 import com.cartagenacorp.lm_oauth.exceptions.BaseException;
-import com.cartagenacorp.lm_oauth.repository.OtpFunctionalityRepository;
-import com.cartagenacorp.lm_oauth.repository.OtpRepository;
 import com.cartagenacorp.lm_oauth.repository.UserRepository;
 import com.cartagenacorp.lm_oauth.util.CryptoUtil;
 import com.cartagenacorp.lm_oauth.util.HashUtil;
 import com.cartagenacorp.lm_oauth.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class OtpService {
@@ -31,16 +33,16 @@ public class OtpService {
     private static final SecureRandom random = new SecureRandom();
     private static final int OTP_LENGTH = 6;
 
-    private final OtpRepository otpRepository;
-    private final OtpFunctionalityRepository otpFunctionalityRepository;
-    private final EmailService emailService;
+    private final OtpStore otpStore;
+    private final OtpFunctionalityCatalog otpFunctionalityCatalog;
+    private final EmailOutboxService emailOutboxService;
     private final UserRepository userRepository;
 
-    public OtpService(OtpRepository otpRepository, OtpFunctionalityRepository otpFunctionalityRepository,
-                      EmailService emailService, UserRepository userRepository) {
-        this.otpRepository = otpRepository;
-        this.otpFunctionalityRepository = otpFunctionalityRepository;
-        this.emailService = emailService;
+    public OtpService(OtpStore otpStore, OtpFunctionalityCatalog otpFunctionalityCatalog,
+                      EmailOutboxService emailOutboxService, UserRepository userRepository) {
+        this.otpStore = otpStore;
+        this.otpFunctionalityCatalog = otpFunctionalityCatalog;
+        this.emailOutboxService = emailOutboxService;
         this.userRepository = userRepository;
     }
 
@@ -55,11 +57,9 @@ public class OtpService {
             throw new BaseException("El usuario ya completó su registro", HttpStatus.BAD_REQUEST.value());
         }
 
-        OtpFunctionality otpFunctionality = otpFunctionalityRepository.findByName(otpRequest.getFunctionality().getName())
+        OtpFunctionality otpFunctionality = otpFunctionalityCatalog.findByName(otpRequest.getFunctionality().getName())
                 .orElseThrow(() -> new BaseException("Funcionalidad OTP no encontrada", HttpStatus.NOT_FOUND.value()));
 
-        otpRepository.deactivateAllActiveOtps(otpRequest.getRegisterRequestDto().getEmail());
-
         RegisterRequestDto original = otpRequest.getRegisterRequestDto();
         RegisterRequestDto safeRegisterRequest = RegisterRequestDto.builder()
                 .email(original.getEmail())
@@ -75,8 +75,9 @@ public class OtpService {
         String passphrase = CryptoUtil.generatePassphrase();
         String passphraseMD5 = CryptoUtil.md5(passphrase);
 
-        otpRepository.save(Otp.builder()
+        String otpId = otpStore.issue(Otp.builder()
                 .code(codeGenerated)
+                .codeCipher(CryptoUtil.encrypt(codeGenerated, passphraseMD5))
                 .passphrase(passphrase)
                 .object(operationBody)
                 .hashObject(objectHash)
@@ -88,25 +89,48 @@ public class OtpService {
                 .build()
         );
 
-        try {
-            logger.debug("Enviando OTP {} al email {}", codeGenerated, otpRequest.getRegisterRequestDto().getEmail());
-            emailService.sendOtpEmail(otpRequest.getRegisterRequestDto().getEmail(), codeGenerated);
-        } catch (Exception ex) {
-            throw new BaseException("Error al enviar email", HttpStatus.INTERNAL_SERVER_ERROR.value());
-        }
+        // El email se entrega después del commit; si la transacción se revierte no sale ninguna OTP. La clave
+        // es la de esta OTP: una petición repetida emite una OTP nueva que sustituye a la anterior y necesita su
+        // propio email; los reintentos en ráfaga los frena el límite por email de RateLimitFilter
+        UUID deliveryId = emailOutboxService.enqueue("otp:" + otpId, otpRequest.getRegisterRequestDto().getEmail(),
+                "otp", Map.of("otp", codeGenerated, "locale", LocaleContextHolder.getLocale().toLanguageTag()));
+        logger.debug("[OtpService] OTP encolada para el email {} con entrega {}", otpRequest.getRegisterRequestDto().getEmail(), deliveryId);
 
         NotificationResponse notificationResponse = ResponseUtil.success("OTP generada, se ha enviado al email registrado", HttpStatus.OK);
 
         logger.info("=== [OtpService] Flujo de generación de OTP finalizado correctamente ===");
-        return  OtpResponse.builder().passphrase(passphrase).notificationResponse(notificationResponse).build();
+        return  OtpResponse.builder().passphrase(passphrase).deliveryId(deliveryId).notificationResponse(notificationResponse).build();
+    }
+
+    /**
+     * Comprueba la OTP sin consumir ningún intento. No sustituye a {@link #validateOtp}: solo permite
+     * descartar una OTP errónea antes de hacer trabajo caro.
+     */
+    public boolean isRedeemable(OtpRequest otpRequest) {
+        return otpStore.isRedeemable(objectHash(otpRequest), otpRequest.getFunctionality().getName(),
+                normalizeCipher(otpRequest.getCode()), LocalDateTime.now());
     }
 
     public void validateOtp(OtpRequest otpRequest){
         logger.info("=== [OtpService] Iniciando flujo de validación de OTP ===");
 
-        OtpFunctionality otpFunctionality = otpFunctionalityRepository.findByName(otpRequest.getFunctionality().getName())
-                .orElseThrow(() -> new BaseException("Funcionalidad OTP no encontrada", HttpStatus.NOT_FOUND.value()));
+        String codeCipher = normalizeCipher(otpRequest.getCode());
+        String objectHash = objectHash(otpRequest);
 
+        // Incremento del intento, comprobaciones y desactivación en una sola operación atómica
+        OtpStore.Outcome outcome = otpStore.consumeAttempt(objectHash, otpRequest.getFunctionality().getName(),
+                codeCipher, LocalDateTime.now())
+                .orElseThrow(() -> new BaseException("OTP no disponible", HttpStatus.NOT_FOUND.value()));
+
+        switch (outcome) {
+            case VALID -> logger.info("=== [OtpService] Flujo de validación de OTP finalizado correctamente ===");
+            case ATTEMPTS_EXCEEDED -> throw new BaseException("Ha sobrepasado el número de intentos por favor genere nuevamente la OTP", HttpStatus.TOO_MANY_REQUESTS.value());
+            case EXPIRED -> throw new BaseException("La OTP ha expirado, por favor genere una nueva", HttpStatus.UNPROCESSABLE_ENTITY.value());
+            default -> throw new BaseException("OTP inválida", HttpStatus.BAD_REQUEST.value());
+        }
+    }
+
+    private String objectHash(OtpRequest otpRequest) {
         RegisterRequestDto original = otpRequest.getRegisterRequestDto();
         RegisterRequestDto safeRegisterRequest = RegisterRequestDto.builder()
                 .email(original.getEmail())
@@ -114,57 +138,15 @@ public class OtpService {
                 .lastName(original.getLastName())
                 .password("****")
                 .build();
-
-        String otpEncrypted = otpRequest.getCode();
-        String operationBody = safeRegisterRequest.toString() + "," + otpRequest.getFunctionality();
-        String objectHash = HashUtil.generateHash(operationBody);
-
-        Otp otp = otpRepository.findFirstByHashObjectAndActiveOrderByCreatedDesc(
-                objectHash,
-                true
-        ).orElseThrow(() -> new BaseException("OTP no disponible", HttpStatus.NOT_FOUND.value()));
-
-        otp.setAttempt(otp.getAttempt() + 1);
-        otpRepository.save(otp);
-
-        isValidAttemps(otp, otpFunctionality);
-        integrityOtp(otp, objectHash);
-
-        String passphrase = otp.getPassphrase();
-        String passphraseMD5 = CryptoUtil.md5(passphrase);
-
-        String otpDecrypted = CryptoUtil.decrypt(otpEncrypted, passphraseMD5);
-
-        if (!otp.getCode().equals(otpDecrypted)) {
-            throw new BaseException("OTP inválida", HttpStatus.BAD_REQUEST.value());
-        }
-
-        otp.setActive(false);
-        otpRepository.save(otp);
-        logger.info("=== [OtpService] Flujo de validación de OTP finalizado correctamente ===");
+        return HashUtil.generateHash(safeRegisterRequest.toString() + "," + otpRequest.getFunctionality());
     }
 
-    private void integrityOtp(Otp otp, String hashObject) {
-        if (!otp.getHashObject().equals(hashObject)) {
-            otp.setActive(false);
-            otpRepository.save(otp);
-            throw new BaseException("Error de integridad de los datos", HttpStatus.CONFLICT.value());
-        }
-    }
-
-    private void isValidAttemps(Otp otp, OtpFunctionality otpFunctionality) {
-        LocalDateTime expirationTime = otp.getCreated().plusSeconds(otpFunctionality.getTimeToLive());
-
-        if (otp.getAttempt() >= otpFunctionality.getAttemptLimit()) {
-            otp.setActive(false);
-            otpRepository.save(otp);
-            throw new BaseException("Ha sobrepasado el número de intentos por favor genere nuevamente la OTP", HttpStatus.TOO_MANY_REQUESTS.value());
-        }
-
-        if (LocalDateTime.now().isAfter(expirationTime)) {
-            otp.setActive(false);
-            otpRepository.save(otp);
-            throw new BaseException("La OTP ha expirado, por favor genere una nueva", HttpStatus.UNPROCESSABLE_ENTITY.value());
+    // El cliente puede enviar el Base64 sin relleno; se reescribe en la forma que se guardó al generar la OTP
+    private String normalizeCipher(String otpEncrypted) {
+        try {
+            return Base64.getEncoder().encodeToString(Base64.getDecoder().decode(otpEncrypted));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new BaseException("OTP inválida", HttpStatus.UNPROCESSABLE_ENTITY.value());
         }
     }
 
@@ -0,0 +1,36 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.entity.Otp;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Almacenamiento de las OTP activas. Se elige con {@code app.otp.store}: {@code database} (por defecto)
+ * o {@code memory}.
+ */
+public interface OtpStore {
+
+    enum Outcome {
+        VALID,
+        INVALID,
+        ATTEMPTS_EXCEEDED,
+        EXPIRED
+    }
+
+    /**
+     * Desactiva las OTP activas del mismo email y guarda la nueva. Devuelve un identificador estable de la OTP.
+     */
+    String issue(Otp otp);
+
+    /**
+     * Consume un intento sobre la OTP activa de {@code hashObject}. Vacío si no hay ninguna OTP activa
+     * para ese objeto y funcionalidad.
+     */
+    Optional<Outcome> consumeAttempt(String hashObject, String functionality, String codeCipher, LocalDateTime now);
+
+    /**
+     * Indica, sin consumir ningún intento, si {@link #consumeAttempt} devolvería VALID en este momento.
+     */
+    boolean isRedeemable(String hashObject, String functionality, String codeCipher, LocalDateTime now);
+}
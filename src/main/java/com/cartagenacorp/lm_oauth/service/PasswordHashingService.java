@@ -0,0 +1,117 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.exceptions.BaseException;
+import com.cartagenacorp.lm_oauth.util.ConstantUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta el hash y la verificación de contraseñas en un pool propio con un hilo menos que núcleos y cola
+ * acotada. BCrypt consume ~100ms de CPU por llamada; así una avalancha de logins no puede ocupar todos los
+ * núcleos ni dejar sin CPU a los endpoints baratos. Si la cola está llena se responde 503 de inmediato.
+ */
+@Service
+public class PasswordHashingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final Duration timeout;
+    private final ThreadPoolExecutor executor;
+
+    private final Timer encodeQueueWait;
+    private final Timer matchesQueueWait;
+    private final Timer encodeTime;
+    private final Timer matchesTime;
+    private final Counter rejected;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                                  @Value("${app.security.password-hashing.pool-size:0}") int poolSize,
+                                  @Value("${app.security.password-hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${app.security.password-hashing.timeout:PT5S}") Duration timeout) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeout = timeout;
+        // 0 = un hilo menos que núcleos disponibles, para que siempre quede uno libre para el resto de peticiones
+        int threads = poolSize > 0 ? poolSize : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeQueueWait = Timer.builder("auth.password.queue.wait").tag("operation", "encode").register(meterRegistry);
+        this.matchesQueueWait = Timer.builder("auth.password.queue.wait").tag("operation", "matches").register(meterRegistry);
+        this.encodeTime = Timer.builder("auth.password.hash.time").tag("operation", "encode").register(meterRegistry);
+        this.matchesTime = Timer.builder("auth.password.hash.time").tag("operation", "matches").register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.rejected").register(meterRegistry);
+        Gauge.builder("auth.password.queue.depth", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        logger.info("[PasswordHashingService] Pool de hash de contraseñas con {} hilos y cola de {}", threads, queueCapacity);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> passwordEncoder.encode(rawPassword), encodeQueueWait, encodeTime);
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> passwordEncoder.matches(rawPassword, encodedPassword), matchesQueueWait, matchesTime);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T execute(Callable<T> task, Timer queueWait, Timer hashTime) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                return hashTime.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.warn("[PasswordHashingService] Cola de hash de contraseñas llena, petición rechazada");
+            throw new BaseException(ConstantUtil.PASSWORD_HASHING_BUSY, HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // BCrypt no atiende interrupciones: cancel() libera al llamante y quita la tarea si aún estaba en
+            // cola, pero un hash ya en curso sigue ocupando su hilo hasta terminar. Por eso el timeout debe ser
+            // holgado respecto a cola llena × coste de un hash / hilos, y la protección real es la cola acotada
+            future.cancel(true);
+            rejected.increment();
+            logger.warn("[PasswordHashingService] El hash de la contraseña superó el tiempo máximo de {}", timeout);
+            throw new BaseException(ConstantUtil.PASSWORD_HASHING_BUSY, HttpStatus.SERVICE_UNAVAILABLE.value());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BaseException(ConstantUtil.PASSWORD_HASHING_BUSY, HttpStatus.SERVICE_UNAVAILABLE.value());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
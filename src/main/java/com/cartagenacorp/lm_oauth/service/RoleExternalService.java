@@ -2,21 +2,31 @@ package com.cartagenacorp.lm_oauth.service;
 
 import com.cartagenacorp.lm_oauth.dto.PermissionDTO;
 import com.cartagenacorp.lm_oauth.dto.RoleDTO;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationBus;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationMessage;
 import com.cartagenacorp.lm_oauth.exceptions.BaseException;
 import com.cartagenacorp.lm_oauth.util.ConstantUtil;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 
 @Service
@@ -29,8 +39,32 @@ public class RoleExternalService {
 
     private final RestTemplate restTemplate;
 
-    public RoleExternalService(RestTemplate restTemplate) {
+    private final ExternalCallGuard externalCallGuard;
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    private final LoadingCache<PermissionKey, List<String>> permissionsCache;
+
+    public RoleExternalService(@Qualifier("roleRestTemplate") RestTemplate restTemplate,
+                               ExternalCallGuard externalCallGuard,
+                               CacheInvalidationBus cacheInvalidationBus,
+                               MeterRegistry meterRegistry,
+                               @Value("${role.service.permissions-cache.ttl:PT10M}") Duration ttl,
+                               @Value("${role.service.permissions-cache.not-found-ttl:PT15S}") Duration notFoundTtl,
+                               @Value("${role.service.permissions-cache.refresh-after:PT1M}") Duration refreshAfter,
+                               @Value("${role.service.permissions-cache.max-size:1000}") long maxSize) {
         this.restTemplate = restTemplate;
+        this.externalCallGuard = externalCallGuard;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        // refreshAfterWrite sirve el valor anterior mientras se recarga en segundo plano y la carga
+        // de una misma clave se comparte entre todos los hilos que la piden a la vez
+        this.permissionsCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(expireAfterWrite(ttl, notFoundTtl))
+                .refreshAfterWrite(refreshAfter)
+                .recordStats()
+                .build(key -> fetchPermissions(key.role(), key.organizationId()));
+        CaffeineCacheMetrics.monitor(meterRegistry, permissionsCache, "rolePermissions");
     }
 
     public List<String> getPermissionsByRole(String role, UUID organizationId) {
@@ -38,20 +72,84 @@ public class RoleExternalService {
         if (role == null) {
             return Collections.emptyList();
         }
+        return permissionsCache.get(new PermissionKey(role, organizationId));
+    }
+
+    public void evictPermissions(String role, UUID organizationId) {
+        permissionsCache.invalidate(new PermissionKey(role, organizationId));
+        cacheInvalidationBus.publish(CacheInvalidationMessage.permissions(role, organizationId));
+    }
+
+    public void evictPermissions(UUID organizationId) {
+        evictLocalPermissions(organizationId);
+        cacheInvalidationBus.publish(CacheInvalidationMessage.permissions(null, organizationId));
+    }
+
+    public void evictAllPermissions() {
+        permissionsCache.invalidateAll();
+        cacheInvalidationBus.publish(CacheInvalidationMessage.permissions(null, null));
+    }
+
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationMessage message) {
+        switch (message.type()) {
+            case PERMISSIONS -> {
+                if (message.role() != null) {
+                    permissionsCache.invalidate(new PermissionKey(message.role(), message.organizationId()));
+                } else if (message.organizationId() != null) {
+                    evictLocalPermissions(message.organizationId());
+                } else {
+                    permissionsCache.invalidateAll();
+                }
+            }
+            case ALL -> permissionsCache.invalidateAll();
+            default -> { }
+        }
+    }
+
+    // Un rol no encontrado (lista vacía) caduca mucho antes: un rol recién creado no debe quedar sin permisos
+    // durante todo el TTL
+    private static Expiry<PermissionKey, List<String>> expireAfterWrite(Duration ttl, Duration notFoundTtl) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(PermissionKey key, List<String> permissions, long currentTime) {
+                return (permissions.isEmpty() ? notFoundTtl : ttl).toNanos();
+            }
+
+            @Override
+            public long expireAfterUpdate(PermissionKey key, List<String> permissions, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, permissions, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(PermissionKey key, List<String> permissions, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private void evictLocalPermissions(UUID organizationId) {
+        permissionsCache.asMap().keySet().removeIf(key -> Objects.equals(key.organizationId(), organizationId));
+    }
+
+    private List<String> fetchPermissions(String role, UUID organizationId) {
         try {
             String url = String.format("%s/%s/%s", roleServiceUrl, organizationId.toString(), role);
-            ResponseEntity<RoleDTO> response = restTemplate.getForEntity(url, RoleDTO.class);
+            ResponseEntity<RoleDTO> response = externalCallGuard.execute(ExternalCallGuard.ROLE_SERVICE,
+                    () -> restTemplate.getForEntity(url, RoleDTO.class));
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 return response.getBody().getPermissions().stream()
                         .map(PermissionDTO::getName)
-                        .collect(Collectors.toList());
+                        .toList();
             }
         } catch (HttpClientErrorException.NotFound ex) {
             logger.warn("Rol no encontrado: {}", role);
         } catch (ResourceAccessException ex) {
             logger.warn("El servicio externo no esta disponible: {}",ex.getMessage());
             throw new BaseException(ConstantUtil.ACCESS_EXCEPTION, HttpStatus.SERVICE_UNAVAILABLE.value());
+        } catch (BaseException ex) {
+            throw ex;
         } catch (Exception ex) {
             logger.error("Error al obtener los permisos del rol {}: {}", role, ex.getMessage(), ex);
             throw new RuntimeException("Error al obtener los permisos del rol: " + role, ex);
@@ -59,6 +157,9 @@ public class RoleExternalService {
         return Collections.emptyList();
     }
 
+    private record PermissionKey(String role, UUID organizationId) {
+    }
+
     public boolean roleExists(String role, UUID organizationId, String token) {
         logger.debug("Validando existencia del rol: {} para la organización: {}", role, organizationId);
         try {
@@ -68,12 +169,13 @@ public class RoleExternalService {
             headers.setBearerAuth(token);
             HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
 
-            ResponseEntity<Boolean> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    requestEntity,
-                    Boolean.class
-            );
+            ResponseEntity<Boolean> response = externalCallGuard.execute(ExternalCallGuard.ROLE_SERVICE,
+                    () -> restTemplate.exchange(
+                            url,
+                            HttpMethod.GET,
+                            requestEntity,
+                            Boolean.class
+                    ));
             boolean exists = Boolean.TRUE.equals(response.getBody());
             logger.info("Resultado de validación del rol {}: {}", role, exists);
             return exists;
@@ -88,6 +190,8 @@ public class RoleExternalService {
         } catch (ResourceAccessException ex) {
             logger.warn("El servicio externo no esta disponible: {}",ex.getMessage());
             throw new BaseException(ConstantUtil.ACCESS_EXCEPTION, HttpStatus.SERVICE_UNAVAILABLE.value());
+        } catch (BaseException ex) {
+            throw ex;
         } catch (Exception ex) {
             logger.error("Error al validar el rol {}: {}", role, ex.getMessage(), ex);
             throw new RuntimeException("Error al validar el rol: " + role, ex);
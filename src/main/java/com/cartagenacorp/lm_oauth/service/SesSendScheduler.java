@@ -0,0 +1,313 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.ses.SesAsyncClient;
+import software.amazon.awssdk.services.ses.model.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Cola de envío hacia SES. Los emails se encolan con capacidad acotada y un único hilo los entrega
+ * respetando la tasa máxima de envío de la cuenta mediante un token bucket. Los emails con plantilla
+ * SES que coinciden en la misma ráfaga se agrupan en un {@code SendBulkTemplatedEmail}.
+ * <p>
+ * La cuota de SES es de toda la cuenta y el bucket es de cada nodo: cada réplica envía a la tasa de la
+ * cuenta dividida entre {@code aws.ses.replicas}.
+ */
+@Service
+public class SesSendScheduler implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(SesSendScheduler.class);
+
+    // Límite de destinos de SendBulkTemplatedEmail
+    private static final int MAX_BULK_DESTINATIONS = 50;
+    private static final String THROTTLING = "Throttling";
+
+    /**
+     * Email listo para enviar. Los crudos llevan asunto y cuerpos; los de plantilla llevan el nombre
+     * de la plantilla registrada en SES y sus datos en JSON.
+     */
+    public record OutboundEmail(String recipient, String subject, String bodyHtml, String bodyText,
+                                String template, String templateData) {
+
+        public static OutboundEmail raw(String recipient, String subject, String bodyHtml, String bodyText) {
+            return new OutboundEmail(recipient, subject, bodyHtml, bodyText, null, null);
+        }
+
+        public static OutboundEmail templated(String recipient, String template, String templateData) {
+            return new OutboundEmail(recipient, null, null, null, template, templateData);
+        }
+
+        boolean isTemplated() {
+            return template != null;
+        }
+    }
+
+    private record PendingSend(OutboundEmail email, CompletableFuture<String> result) {
+    }
+
+    private final SesAsyncClient sesAsyncClient;
+    private final String senderEmail;
+    private final double configuredSendRate;
+    private final double fallbackSendRate;
+    private final int replicas;
+    private final BlockingQueue<PendingSend> queue;
+
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Counter throttled;
+
+    private volatile TokenBucket tokenBucket;
+    private volatile boolean running = false;
+    private Thread senderThread;
+
+    public SesSendScheduler(SesAsyncClient sesAsyncClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${aws.ses.sender-email}") String senderEmail,
+                            @Value("${aws.ses.max-send-rate:0}") double configuredSendRate,
+                            @Value("${aws.ses.fallback-send-rate:1}") double fallbackSendRate,
+                            @Value("${aws.ses.queue-capacity:1000}") int queueCapacity,
+                            @Value("${aws.ses.replicas:1}") int replicas) {
+        this.sesAsyncClient = sesAsyncClient;
+        this.senderEmail = senderEmail;
+        this.configuredSendRate = configuredSendRate;
+        this.fallbackSendRate = fallbackSendRate;
+        this.replicas = Math.max(1, replicas);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("email.ses.queue.depth", queue, Collection::size)
+                .description("Emails esperando turno de envío a SES")
+                .register(meterRegistry);
+        Gauge.builder("email.ses.queue.remaining", queue, BlockingQueue::remainingCapacity)
+                .register(meterRegistry);
+        Gauge.builder("email.ses.send.rate", this, scheduler -> scheduler.tokenBucket == null ? 0 : scheduler.tokenBucket.getPermitsPerSecond())
+                .baseUnit("emails/s")
+                .register(meterRegistry);
+        this.sent = Counter.builder("email.ses.sent").register(meterRegistry);
+        this.failed = Counter.builder("email.ses.failed").register(meterRegistry);
+        this.rejected = Counter.builder("email.ses.rejected").description("Emails rechazados por cola llena").register(meterRegistry);
+        this.throttled = Counter.builder("email.ses.throttled").register(meterRegistry);
+    }
+
+    /**
+     * Encola el email. El futuro se completa con el messageId de SES o con el error del envío; si la
+     * cola está llena falla de inmediato con {@link RejectedExecutionException}.
+     */
+    public CompletableFuture<String> submit(OutboundEmail email) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        if (!running || !queue.offer(new PendingSend(email, result))) {
+            rejected.increment();
+            result.completeExceptionally(new RejectedExecutionException("Cola de envío a SES llena"));
+        }
+        return result;
+    }
+
+    public int remainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    /**
+     * Emails que aún pueden encolarse y salir dentro de {@code window} a la tasa actual, descontando los
+     * que ya esperan en la cola.
+     */
+    public int sendableWithin(Duration window) {
+        TokenBucket bucket = tokenBucket;
+        if (!running || bucket == null) {
+            return 0;
+        }
+        long sendable = (long) (bucket.getPermitsPerSecond() * window.toMillis() / 1000.0) - queue.size();
+        return (int) Math.max(0, Math.min(sendable, queue.remainingCapacity()));
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (configuredSendRate > 0) {
+            applySendRate(configuredSendRate);
+        } else {
+            // Se arranca con la tasa de respaldo y la cuota real se aplica cuando responda SES, sin bloquear el arranque
+            applySendRate(fallbackSendRate);
+            resolveSendRate();
+        }
+        running = true;
+        senderThread = new Thread(this::dispatch, "ses-sender");
+        senderThread.setDaemon(true);
+        senderThread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (senderThread != null) {
+            senderThread.interrupt();
+            senderThread = null;
+        }
+        List<PendingSend> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(pending -> pending.result().completeExceptionally(
+                new RejectedExecutionException("Envío a SES detenido")));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void resolveSendRate() {
+        sesAsyncClient.getSendQuota().whenComplete((quota, error) -> {
+            if (error != null) {
+                logger.warn("[SesSendScheduler] No se pudo consultar la cuota de SES: {}", error.getMessage());
+            } else if (quota.maxSendRate() != null && quota.maxSendRate() > 0) {
+                applySendRate(quota.maxSendRate());
+            }
+        });
+    }
+
+    private void applySendRate(double accountSendRate) {
+        double sendRate = accountSendRate / replicas;
+        // Capacidad de un segundo: SES mide la tasa por segundo y tolera ráfagas de ese tamaño
+        tokenBucket = new TokenBucket(sendRate, Math.max(1, sendRate));
+        logger.info("[SesSendScheduler] Tasa de envío a SES: {} emails/s en este nodo ({} de la cuenta entre {} réplicas)",
+                sendRate, accountSendRate, replicas);
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                PendingSend first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PendingSend> burst = new ArrayList<>();
+                burst.add(first);
+                queue.drainTo(burst, MAX_BULK_DESTINATIONS - 1);
+
+                Map<String, List<PendingSend>> byTemplate = new LinkedHashMap<>();
+                for (PendingSend pending : burst) {
+                    if (pending.email().isTemplated()) {
+                        byTemplate.computeIfAbsent(pending.email().template(), key -> new ArrayList<>()).add(pending);
+                    } else {
+                        tokenBucket.acquire(1);
+                        sendRaw(pending);
+                    }
+                }
+                for (List<PendingSend> group : byTemplate.values()) {
+                    tokenBucket.acquire(group.size());
+                    sendTemplated(group);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("[SesSendScheduler] Error inesperado en el envío a SES: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void sendRaw(PendingSend pending) {
+        OutboundEmail email = pending.email();
+        SendEmailRequest request = SendEmailRequest.builder()
+                .source(senderEmail)
+                .destination(destination(email.recipient()))
+                .message(Message.builder()
+                        .subject(content(email.subject()))
+                        .body(Body.builder()
+                                .html(content(email.bodyHtml()))
+                                .text(content(email.bodyText()))
+                                .build())
+                        .build())
+                .build();
+        sesAsyncClient.sendEmail(request)
+                .whenComplete((response, error) -> complete(pending, response == null ? null : response.messageId(), error));
+    }
+
+    private void sendTemplated(List<PendingSend> group) {
+        if (group.size() == 1) {
+            PendingSend pending = group.get(0);
+            SendTemplatedEmailRequest request = SendTemplatedEmailRequest.builder()
+                    .source(senderEmail)
+                    .destination(destination(pending.email().recipient()))
+                    .template(pending.email().template())
+                    .templateData(pending.email().templateData())
+                    .build();
+            sesAsyncClient.sendTemplatedEmail(request)
+                    .whenComplete((response, error) -> complete(pending, response == null ? null : response.messageId(), error));
+            return;
+        }
+
+        SendBulkTemplatedEmailRequest request = SendBulkTemplatedEmailRequest.builder()
+                .source(senderEmail)
+                .template(group.get(0).email().template())
+                // Obligatorio en la API; cada destino lo reemplaza con sus propios datos
+                .defaultTemplateData("{}")
+                .destinations(group.stream()
+                        .map(pending -> BulkEmailDestination.builder()
+                                .destination(destination(pending.email().recipient()))
+                                .replacementTemplateData(pending.email().templateData())
+                                .build())
+                        .toList())
+                .build();
+        sesAsyncClient.sendBulkTemplatedEmail(request).whenComplete((response, error) -> {
+            if (error != null) {
+                group.forEach(pending -> complete(pending, null, error));
+                return;
+            }
+            // SES devuelve un estado por destino, en el mismo orden de la petición
+            List<BulkEmailDestinationStatus> statuses = response.status();
+            for (int i = 0; i < group.size(); i++) {
+                BulkEmailDestinationStatus status = i < statuses.size() ? statuses.get(i) : null;
+                if (status != null && status.status() == BulkEmailStatus.SUCCESS) {
+                    complete(group.get(i), status.messageId(), null);
+                } else {
+                    String code = status == null ? "Unknown" : status.statusAsString();
+                    String message = status == null ? "Sin estado para el destino" : status.error();
+                    complete(group.get(i), null, SesException.builder()
+                            .message(message)
+                            .awsErrorDetails(AwsErrorDetails.builder().errorCode(code).errorMessage(message).build())
+                            .build());
+                }
+            }
+        });
+    }
+
+    private void complete(PendingSend pending, String messageId, Throwable error) {
+        if (error == null) {
+            sent.increment();
+            pending.result().complete(messageId);
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof SesException sesException && sesException.awsErrorDetails() != null) {
+            String code = sesException.awsErrorDetails().errorCode();
+            if (THROTTLING.equals(code) || BulkEmailStatus.ACCOUNT_THROTTLED.toString().equals(code)) {
+                throttled.increment();
+                tokenBucket.drain();
+            }
+        }
+        failed.increment();
+        logger.warn("[SesSendScheduler] Error al enviar email via AWS SES a {}: {}", pending.email().recipient(), cause.getMessage());
+        pending.result().completeExceptionally(cause);
+    }
+
+    private static Destination destination(String recipient) {
+        return Destination.builder().toAddresses(recipient).build();
+    }
+
+    private static Content content(String data) {
+        return Content.builder().data(data).charset("UTF-8").build();
+    }
+}
@@ -0,0 +1,117 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.dto.UserSnapshot;
+import com.cartagenacorp.lm_oauth.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resuelve lotes de usuarios para /users/batch. Elimina IDs repetidos, consulta sólo las columnas del
+ * DTO en bloques de tamaño acotado y, si otra petición ya está cargando un ID, espera su resultado en
+ * lugar de volver a consultarlo.
+ */
+@Service
+public class UserBatchLookup {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserBatchLookup.class);
+
+    private final UserRepository userRepository;
+    private final int chunkSize;
+
+    private final Map<UUID, CompletableFuture<UserSnapshot>> inFlight = new ConcurrentHashMap<>();
+
+    public UserBatchLookup(UserRepository userRepository,
+                           @Value("${app.users.batch.chunk-size:500}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("app.users.batch.chunk-size debe ser mayor que 0");
+        }
+        this.userRepository = userRepository;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Devuelve los usuarios existentes en el orden en que se pidieron; los IDs desconocidos se omiten.
+     */
+    public List<UserSnapshot> findByIds(Collection<? extends UUID> ids) {
+        Set<UUID> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+        if (uniqueIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<UUID, CompletableFuture<UserSnapshot>> pending = new LinkedHashMap<>();
+        Map<UUID, CompletableFuture<UserSnapshot>> owned = new HashMap<>();
+        for (UUID id : uniqueIds) {
+            CompletableFuture<UserSnapshot> created = new CompletableFuture<>();
+            CompletableFuture<UserSnapshot> existing = inFlight.putIfAbsent(id, created);
+            if (existing == null) {
+                owned.put(id, created);
+                pending.put(id, created);
+            } else {
+                pending.put(id, existing);
+            }
+        }
+
+        // Primero se cargan los IDs propios y sólo después se espera a los de otras peticiones,
+        // así dos lotes que se solapan nunca se bloquean mutuamente
+        load(owned);
+
+        List<UserSnapshot> result = new ArrayList<>(pending.size());
+        for (CompletableFuture<UserSnapshot> future : pending.values()) {
+            UserSnapshot user = join(future);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    private void load(Map<UUID, CompletableFuture<UserSnapshot>> owned) {
+        if (owned.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = new ArrayList<>(owned.keySet());
+        try {
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<UUID> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                Map<UUID, UserSnapshot> found = new HashMap<>();
+                for (UserSnapshot user : userRepository.findSnapshotsByIdIn(chunk)) {
+                    found.put(user.id(), user);
+                }
+                for (UUID id : chunk) {
+                    complete(id, owned.get(id), found.get(id));
+                }
+            }
+        } catch (RuntimeException ex) {
+            logger.error("[UserBatchLookup] Error al consultar el lote de usuarios: {}", ex.getMessage());
+            owned.forEach((id, future) -> {
+                inFlight.remove(id, future);
+                future.completeExceptionally(ex);
+            });
+            throw ex;
+        }
+    }
+
+    private void complete(UUID id, CompletableFuture<UserSnapshot> future, UserSnapshot user) {
+        inFlight.remove(id, future);
+        future.complete(user);
+    }
+
+    private static UserSnapshot join(CompletableFuture<UserSnapshot> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+}
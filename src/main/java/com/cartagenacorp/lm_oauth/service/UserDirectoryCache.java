@@ -0,0 +1,137 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.dto.UserSnapshot;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationMessage;
+import com.cartagenacorp.lm_oauth.event.UserChangedEvent;
+import com.cartagenacorp.lm_oauth.mapper.UserMapper;
+import com.cartagenacorp.lm_oauth.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cache de lectura de usuarios por ID. Toda escritura de la entidad {@link com.cartagenacorp.lm_oauth.entity.User}
+ * (UserService, registro, login con Google, importación) publica un {@link UserChangedEvent}, que expulsa
+ * la entrada una vez confirmada la transacción.
+ * <p>
+ * La carga por bloques no es atómica respecto a la invalidación como la de una sola clave: cada expulsión
+ * incrementa la generación de la clave y una carga que la vea cambiada retira lo que acaba de insertar.
+ */
+@Service
+public class UserDirectoryCache {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final UserRepository userRepository;
+    private final UserBatchLookup userBatchLookup;
+    private final UserMapper userMapper;
+
+    private final Cache<UUID, UserSnapshot> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public UserDirectoryCache(UserRepository userRepository,
+                              UserBatchLookup userBatchLookup,
+                              UserMapper userMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.users.cache.ttl:PT10M}") Duration ttl,
+                              @Value("${app.users.cache.max-size:10000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.userBatchLookup = userBatchLookup;
+        this.userMapper = userMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDirectory");
+    }
+
+    public Optional<UserSnapshot> findById(UUID id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.get(id, key -> userRepository.findById(key)
+                .map(userMapper::toSnapshot)
+                .orElse(null)));
+    }
+
+    /**
+     * Devuelve los usuarios existentes en el orden en que se pidieron; los que faltan en cache se
+     * cargan con una sola consulta por bloque.
+     */
+    public List<UserSnapshot> findAllById(Collection<UUID> ids) {
+        Set<UUID> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+        if (uniqueIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<UUID, UserSnapshot> found = new HashMap<>(cache.getAllPresent(uniqueIds));
+        List<UUID> missing = uniqueIds.stream().filter(id -> !found.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            Map<UUID, Long> generationsBefore = missing.stream()
+                    .collect(Collectors.toMap(Function.identity(), this::generation));
+            for (UserSnapshot user : userBatchLookup.findByIds(missing)) {
+                found.put(user.id(), user);
+                cache.put(user.id(), user);
+                // Si se expulsó mientras se leía, la fila puede ser anterior al cambio: no se deja en cache
+                if (generation(user.id()) != generationsBefore.get(user.id())) {
+                    cache.asMap().remove(user.id(), user);
+                }
+            }
+        }
+        List<UserSnapshot> result = new ArrayList<>(found.size());
+        for (UUID id : uniqueIds) {
+            UserSnapshot user = found.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    // La generación se incrementa antes de invalidar para que una carga en curso la vea cambiada
+    public void evict(UUID id) {
+        generations.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        evict(event.userId());
+    }
+
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationMessage message) {
+        switch (message.type()) {
+            case USER -> evict(message.userId());
+            case ALL -> invalidateAll();
+            default -> { }
+        }
+    }
+
+    private long generation(UUID id) {
+        return generations.get(stripe(id));
+    }
+
+    private static int stripe(UUID id) {
+        return Math.floorMod(id.hashCode(), GENERATION_STRIPES);
+    }
+}
@@ -0,0 +1,154 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.dto.UserDtoResponse;
+import com.cartagenacorp.lm_oauth.exceptions.BaseException;
+import com.cartagenacorp.lm_oauth.repository.UserBulkRepository;
+import com.cartagenacorp.lm_oauth.util.ConstantUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Exportación de los usuarios de una organización directamente a la respuesta. Las filas llegan de un
+ * cursor JDBC y se escriben una a una: en XLSX sólo se mantiene en memoria la ventana de filas de
+ * {@link SXSSFWorkbook} y en NDJSON ninguna.
+ */
+@Service
+public class UserExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExportService.class);
+
+    private static final String[] XLSX_HEADER = {"id", "email", "nombre", "apellido", "rol", "fecha_creacion"};
+
+    public enum Format {
+        XLSX(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"), "xlsx"),
+        NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format from(String value) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new BaseException(ConstantUtil.INVALID_INPUT, HttpStatus.BAD_REQUEST.value());
+        }
+    }
+
+    private final UserBulkRepository userBulkRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+    private final int rowWindow;
+
+    public UserExportService(UserBulkRepository userBulkRepository,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.users.export.fetch-size:500}") int fetchSize,
+                             @Value("${app.users.export.row-window:100}") int rowWindow) {
+        this.userBulkRepository = userBulkRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.fetchSize = fetchSize;
+        this.rowWindow = rowWindow;
+    }
+
+    public void export(UUID organizationId, Format format, OutputStream out) throws IOException {
+        try {
+            switch (format) {
+                case XLSX -> writeXlsx(organizationId, out);
+                case NDJSON -> writeNdjson(organizationId, out);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeXlsx(UUID organizationId, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet("usuarios");
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < XLSX_HEADER.length; i++) {
+                header.createCell(i).setCellValue(XLSX_HEADER[i]);
+            }
+            AtomicInteger rowIndex = new AtomicInteger(1);
+            stream(organizationId, user -> {
+                Row row = sheet.createRow(rowIndex.getAndIncrement());
+                row.createCell(0).setCellValue(user.getId().toString());
+                row.createCell(1).setCellValue(user.getEmail());
+                row.createCell(2).setCellValue(user.getFirstName());
+                row.createCell(3).setCellValue(user.getLastName());
+                row.createCell(4).setCellValue(user.getRole());
+                row.createCell(5).setCellValue(user.getCreatedAt() != null ? user.getCreatedAt().toString() : null);
+            });
+            workbook.write(out);
+            logger.info("[UserExportService] Exportados {} usuarios de la organización {} en XLSX", rowIndex.get() - 1, organizationId);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void writeNdjson(UUID organizationId, OutputStream out) throws IOException {
+        // Sin flush por fila: el generador vacía su buffer a medida que se llena
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            AtomicInteger count = new AtomicInteger();
+            stream(organizationId, user -> {
+                try {
+                    writer.writeValue(generator, user);
+                    generator.writeRaw('\n');
+                    count.incrementAndGet();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            logger.info("[UserExportService] Exportados {} usuarios de la organización {} en NDJSON", count.get(), organizationId);
+        }
+    }
+
+    private void stream(UUID organizationId, Consumer<UserDtoResponse> consumer) {
+        readOnlyTransaction.executeWithoutResult(status ->
+                userBulkRepository.streamByOrganization(organizationId, fetchSize, consumer));
+    }
+}
@@ -0,0 +1,223 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.dto.UserIdentifierView;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationMessage;
+import com.cartagenacorp.lm_oauth.event.UserChangedEvent;
+import com.cartagenacorp.lm_oauth.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Índice en memoria de los identificadores con los que lm-integration resuelve usuarios: email,
+ * "nombre.apellido", "nombre apellido", nombre y apellido, normalizados en minúsculas. Se construye al
+ * arrancar y se mantiene al día con los {@link UserChangedEvent}. Ante varias coincidencias gana el
+ * usuario más antiguo, igual que el recorrido secuencial que reemplaza.
+ * <p>
+ * La construcción se hace en un hilo propio sobre un índice nuevo que sustituye al anterior al terminar;
+ * mientras tanto las búsquedas se resuelven con una consulta a la base de datos y nunca esperan al índice.
+ */
+@Service
+public class UserIdentifierResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserIdentifierResolver.class);
+
+    private static final Comparator<IndexedUser> CREATION_ORDER = Comparator
+            .comparing(IndexedUser::createdAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(IndexedUser::id);
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+
+    private volatile Index index = new Index();
+    private volatile boolean ready = false;
+    // Cambia con cada invalidación: una construcción que la vea cambiada no marca el índice como listo
+    private long generation;
+    // Usuarios modificados mientras se construye el índice nuevo; se recargan al sustituirlo
+    private Set<UUID> changedDuringRebuild;
+
+    public UserIdentifierResolver(UserRepository userRepository, TransactionTemplate transactionTemplate) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        // Un solo hilo y sin cola: como mucho una construcción en curso
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-identifier-index");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public Optional<UUID> resolve(String identifier) {
+        String key = normalize(identifier);
+        if (key.isEmpty()) {
+            return Optional.empty();
+        }
+        if (!ready) {
+            rebuildAsync();
+            return userRepository.findOldestIdByIdentifier(key);
+        }
+        NavigableSet<IndexedUser> matches = index.byKey.get(key);
+        if (matches == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(matches.first().id());
+        } catch (NoSuchElementException ex) {
+            return Optional.empty();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAsync() {
+        try {
+            executor.execute(this::rebuild);
+        } catch (RejectedExecutionException e) {
+            logger.debug("[UserIdentifierResolver] Ya hay una construcción del índice en curso");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void rebuild() {
+        long startGeneration;
+        synchronized (this) {
+            if (ready) {
+                return;
+            }
+            startGeneration = generation;
+            changedDuringRebuild = new HashSet<>();
+        }
+        logger.info("[UserIdentifierResolver] Construyendo índice de identificadores de usuario");
+        Index fresh = new Index();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<UserIdentifierView> users = userRepository.streamIdentifiers()) {
+                    users.forEach(user -> fresh.add(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(), user.getCreatedAt()));
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            // Las búsquedas siguen yendo a la base de datos y la siguiente vuelve a intentarlo
+            logger.warn("[UserIdentifierResolver] No se pudo construir el índice de identificadores: {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            index = fresh;
+            for (UUID userId : changedDuringRebuild) {
+                reload(userId);
+            }
+            changedDuringRebuild = null;
+            ready = generation == startGeneration;
+        }
+        logger.info("[UserIdentifierResolver] Índice construido con {} usuarios y {} claves", fresh.byId.size(), fresh.byKey.size());
+        if (!ready) {
+            rebuildAsync();
+        }
+    }
+
+    public synchronized void reindex(UUID userId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(userId);
+        }
+        reload(userId);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        ready = false;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onUserChanged(UserChangedEvent event) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(event.userId());
+        }
+        index.remove(event.userId());
+        if (event.type() == UserChangedEvent.Type.SAVED) {
+            index.add(event.userId(), event.email(), event.firstName(), event.lastName(), event.createdAt());
+        }
+    }
+
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationMessage message) {
+        switch (message.type()) {
+            case USER -> reindex(message.userId());
+            case USER_INDEX, ALL -> invalidateAll();
+            default -> { }
+        }
+    }
+
+    private void reload(UUID userId) {
+        index.remove(userId);
+        userRepository.findIdentifierById(userId)
+                .ifPresent(user -> index.add(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(), user.getCreatedAt()));
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase();
+    }
+
+    private static final class Index {
+
+        private final Map<String, NavigableSet<IndexedUser>> byKey = new ConcurrentHashMap<>();
+        private final Map<UUID, IndexedUser> byId = new ConcurrentHashMap<>();
+
+        void add(UUID id, String email, String firstName, String lastName, LocalDateTime createdAt) {
+            Set<String> keys = new HashSet<>();
+            if (email != null) {
+                keys.add(normalize(email));
+            }
+            if (firstName != null && lastName != null) {
+                keys.add(normalize(firstName) + "." + normalize(lastName));
+                keys.add(normalize(firstName) + " " + normalize(lastName));
+            }
+            if (firstName != null) {
+                keys.add(normalize(firstName));
+            }
+            if (lastName != null) {
+                keys.add(normalize(lastName));
+            }
+            keys.remove("");
+
+            IndexedUser indexed = new IndexedUser(id, createdAt, Set.copyOf(keys));
+            byId.put(id, indexed);
+            for (String key : indexed.keys()) {
+                byKey.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(CREATION_ORDER)).add(indexed);
+            }
+        }
+
+        void remove(UUID id) {
+            IndexedUser previous = byId.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (String key : previous.keys()) {
+                byKey.computeIfPresent(key, (k, users) -> {
+                    users.remove(previous);
+                    return users.isEmpty() ? null : users;
+                });
+            }
+        }
+    }
+
+    private record IndexedUser(UUID id, LocalDateTime createdAt, Set<String> keys) {
+    }
+}
@@ -0,0 +1,176 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.dto.UserImportSummary;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationBus;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationMessage;
+import com.cartagenacorp.lm_oauth.repository.UserBulkRepository;
+import com.cartagenacorp.lm_oauth.repository.UserRepository;
+import com.cartagenacorp.lm_oauth.util.XlsxStreamReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Importación de usuarios desde XLSX en streaming. Las filas se agrupan en bloques: cada bloque elimina
+ * sus emails repetidos, consulta de una vez cuáles ya existen e inserta el resto en un batch JDBC dentro
+ * de su propia transacción. Como cada bloque queda confirmado antes de leer el siguiente, un email
+ * repetido en otro bloque del archivo aparece como existente. La memoria depende del tamaño del bloque,
+ * no del archivo; el resultado de cada fila se entrega al {@link UserImportListener}.
+ */
+@Service
+public class UserImportEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportEngine.class);
+
+    private final UserRepository userRepository;
+    private final UserBulkRepository userBulkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final UserIdentifierResolver userIdentifierResolver;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final int chunkSize;
+
+    public UserImportEngine(UserRepository userRepository,
+                            UserBulkRepository userBulkRepository,
+                            TransactionTemplate transactionTemplate,
+                            UserIdentifierResolver userIdentifierResolver,
+                            CacheInvalidationBus cacheInvalidationBus,
+                            @Value("${app.users.import.chunk-size:1000}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("app.users.import.chunk-size debe ser mayor que 0");
+        }
+        this.userRepository = userRepository;
+        this.userBulkRepository = userBulkRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.userIdentifierResolver = userIdentifierResolver;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.chunkSize = chunkSize;
+    }
+
+    public UserImportSummary importUsers(Path file, UUID organizationId, UserImportListener listener) throws IOException {
+        Chunker chunker = new Chunker(organizationId, listener);
+        try {
+            XlsxStreamReader.readFirstColumn(file, chunker::add);
+            chunker.flush();
+        } finally {
+            if (chunker.inserted > 0) {
+                // Las filas se insertaron sin JPA: el índice de identificadores se reconstruye en todos los nodos
+                userIdentifierResolver.invalidateAll();
+                cacheInvalidationBus.publish(CacheInvalidationMessage.userIndex());
+            }
+        }
+        UserImportSummary summary = chunker.summary();
+        logger.info("[UserImportEngine] Importación terminada para la organización {}: {}", organizationId, summary);
+        return summary;
+    }
+
+    private record ImportRow(int rowNumber, String email) {
+    }
+
+    private class Chunker {
+
+        private final UUID organizationId;
+        private final UserImportListener listener;
+        private final List<ImportRow> rows = new ArrayList<>(chunkSize);
+        private long processed;
+        private long inserted;
+        private long skipped;
+        private long failed;
+
+        Chunker(UUID organizationId, UserImportListener listener) {
+            this.organizationId = organizationId;
+            this.listener = listener;
+        }
+
+        void add(int rowNumber, String email) {
+            rows.add(new ImportRow(rowNumber, email));
+            if (rows.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            List<ImportRow> chunk = List.copyOf(rows);
+            rows.clear();
+
+            Map<String, ImportRow> candidates = new LinkedHashMap<>();
+            Map<ImportRow, UserImportListener.RowOutcome> outcomes = new LinkedHashMap<>();
+            for (ImportRow row : chunk) {
+                if (row.email().indexOf('@') < 1) {
+                    outcomes.put(row, UserImportListener.RowOutcome.INVALID_EMAIL);
+                } else if (candidates.putIfAbsent(row.email(), row) != null) {
+                    outcomes.put(row, UserImportListener.RowOutcome.DUPLICATE_IN_FILE);
+                } else {
+                    outcomes.put(row, null);
+                }
+            }
+
+            String error = null;
+            try {
+                Map<ImportRow, UserImportListener.RowOutcome> saved = transactionTemplate.execute(status -> save(candidates));
+                if (saved != null) {
+                    outcomes.putAll(saved);
+                }
+            } catch (RuntimeException ex) {
+                // Un bloque fallido no detiene la importación: sus filas se reportan como fallidas
+                logger.error("[UserImportEngine] Error guardando un bloque de {} filas: {}", candidates.size(), ex.getMessage());
+                error = ex.getMessage();
+                for (ImportRow row : candidates.values()) {
+                    outcomes.put(row, UserImportListener.RowOutcome.FAILED);
+                }
+            }
+
+            for (Map.Entry<ImportRow, UserImportListener.RowOutcome> entry : outcomes.entrySet()) {
+                UserImportListener.RowOutcome outcome = entry.getValue();
+                processed++;
+                switch (outcome) {
+                    case INSERTED -> inserted++;
+                    case ALREADY_EXISTS, DUPLICATE_IN_FILE -> skipped++;
+                    case INVALID_EMAIL, FAILED -> failed++;
+                }
+                listener.onRow(entry.getKey().rowNumber(), entry.getKey().email(), outcome,
+                        outcome == UserImportListener.RowOutcome.FAILED ? error : null);
+            }
+            listener.onChunk(summary());
+        }
+
+        private Map<ImportRow, UserImportListener.RowOutcome> save(Map<String, ImportRow> candidates) {
+            Map<ImportRow, UserImportListener.RowOutcome> result = new HashMap<>();
+            Map<String, ImportRow> pending = new LinkedHashMap<>(candidates);
+            for (String existing : userRepository.findExistingEmails(candidates.keySet())) {
+                ImportRow row = pending.remove(existing);
+                if (row != null) {
+                    result.put(row, UserImportListener.RowOutcome.ALREADY_EXISTS);
+                }
+            }
+            if (pending.isEmpty()) {
+                return result;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            List<ImportRow> toInsert = new ArrayList<>(pending.values());
+            List<UserBulkRepository.NewUser> users = toInsert.stream()
+                    .map(row -> new UserBulkRepository.NewUser(UUID.randomUUID(), row.email(), organizationId, now))
+                    .toList();
+            boolean[] insertedRows = userBulkRepository.insertIgnoringExisting(users);
+            for (int i = 0; i < toInsert.size(); i++) {
+                result.put(toInsert.get(i), insertedRows[i]
+                        ? UserImportListener.RowOutcome.INSERTED
+                        : UserImportListener.RowOutcome.ALREADY_EXISTS);
+            }
+            return result;
+        }
+
+        UserImportSummary summary() {
+            return new UserImportSummary(processed, inserted, skipped, failed);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.dto.UserImportJobDTO;
+import com.cartagenacorp.lm_oauth.dto.UserImportSummary;
+import com.cartagenacorp.lm_oauth.entity.UserImportJob;
+import com.cartagenacorp.lm_oauth.entity.UserImportJobReport;
+import com.cartagenacorp.lm_oauth.exceptions.BaseException;
+import com.cartagenacorp.lm_oauth.mapper.UserImportJobMapper;
+import com.cartagenacorp.lm_oauth.repository.UserImportJobReportRepository;
+import com.cartagenacorp.lm_oauth.repository.UserImportJobRepository;
+import com.cartagenacorp.lm_oauth.util.ConstantUtil;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta las importaciones de usuarios en segundo plano. El estado de cada trabajo se guarda en
+ * base de datos, de modo que cualquier réplica puede responder a la consulta de progreso, y al terminar
+ * se almacena un reporte CSV con el resultado de cada fila, truncado a {@code app.users.import.max-report-size}.
+ * <p>
+ * El pool es acotado y cada organización tiene un límite de importaciones simultáneas en este nodo,
+ * para que una carga masiva no deje sin conexiones al tráfico interactivo.
+ */
+@Service
+public class UserImportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportJobService.class);
+
+    private static final String REPORT_HEADER = "fila,email,resultado,detalle";
+    private static final String REPORT_TRUNCATED = ",,TRUNCATED,El reporte superó el tamaño máximo; los totales del trabajo siguen completos";
+
+    private final UserImportEngine userImportEngine;
+    private final UserImportJobRepository userImportJobRepository;
+    private final UserImportJobReportRepository userImportJobReportRepository;
+    private final UserImportJobMapper userImportJobMapper;
+    private final int maxConcurrentPerOrganization;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<UUID, Integer> activeByOrganization = new ConcurrentHashMap<>();
+    // Trabajos en cola o en ejecución en este nodo, cuyo heartbeat se renueva
+    private final Set<UUID> localJobs = ConcurrentHashMap.newKeySet();
+    private final Duration staleAfter;
+    private final long maxReportBytes;
+
+    public UserImportJobService(UserImportEngine userImportEngine,
+                                UserImportJobRepository userImportJobRepository,
+                                UserImportJobReportRepository userImportJobReportRepository,
+                                UserImportJobMapper userImportJobMapper,
+                                @Value("${app.users.import.pool-size:2}") int poolSize,
+                                @Value("${app.users.import.queue-capacity:10}") int queueCapacity,
+                                @Value("${app.users.import.max-concurrent-per-organization:1}") int maxConcurrentPerOrganization,
+                                @Value("${app.users.import.stale-after:PT10M}") Duration staleAfter,
+                                @Value("${app.users.import.max-report-size:10MB}") DataSize maxReportSize) {
+        this.userImportEngine = userImportEngine;
+        this.userImportJobRepository = userImportJobRepository;
+        this.userImportJobReportRepository = userImportJobReportRepository;
+        this.userImportJobMapper = userImportJobMapper;
+        this.maxConcurrentPerOrganization = maxConcurrentPerOrganization;
+        this.staleAfter = staleAfter;
+        this.maxReportBytes = maxReportSize.toBytes();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-import-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public UserImportJobDTO submit(MultipartFile file, UUID organizationId, UUID requestedBy) {
+        if (organizationId == null) {
+            throw new BaseException(ConstantUtil.PERMISSION_DENIED, HttpStatus.UNAUTHORIZED.value());
+        }
+        if (!tryAcquire(organizationId)) {
+            throw new BaseException(ConstantUtil.IMPORT_ALREADY_RUNNING, HttpStatus.TOO_MANY_REQUESTS.value());
+        }
+
+        Path upload;
+        try {
+            // El multipart se borra al terminar la petición y el lector SAX necesita un archivo propio
+            upload = Files.createTempFile("users-import-", ".xlsx");
+            file.transferTo(upload);
+        } catch (IOException e) {
+            release(organizationId);
+            throw new BaseException(ConstantUtil.ERROR_PROCESSING_FILE, HttpStatus.BAD_REQUEST.value());
+        }
+
+        UserImportJob job = new UserImportJob();
+        job.setOrganizationId(organizationId);
+        job.setRequestedBy(requestedBy);
+        job.setFileName(file.getOriginalFilename());
+        job.setStatus(UserImportJob.Status.QUEUED);
+        job.setHeartbeatAt(LocalDateTime.now());
+        UserImportJob savedJob = userImportJobRepository.save(job);
+
+        localJobs.add(savedJob.getId());
+        try {
+            executor.execute(() -> run(savedJob.getId(), upload, organizationId));
+        } catch (RejectedExecutionException e) {
+            localJobs.remove(savedJob.getId());
+            release(organizationId);
+            deleteQuietly(upload);
+            finish(savedJob.getId(), UserImportJob.Status.FAILED, ConstantUtil.IMPORT_QUEUE_FULL);
+            throw new BaseException(ConstantUtil.IMPORT_QUEUE_FULL, HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+        logger.info("[UserImportJobService] Importación {} encolada para la organización {}", savedJob.getId(), organizationId);
+        return userImportJobMapper.toDto(savedJob);
+    }
+
+    public UserImportJobDTO getJob(UUID jobId, UUID organizationId) {
+        return userImportJobMapper.toDto(findJob(jobId, organizationId));
+    }
+
+    public byte[] getReport(UUID jobId, UUID organizationId) {
+        UserImportJob job = findJob(jobId, organizationId);
+        if (job.getStatus() != UserImportJob.Status.COMPLETED) {
+            throw new BaseException(ConstantUtil.IMPORT_REPORT_NOT_READY, HttpStatus.CONFLICT.value());
+        }
+        return userImportJobReportRepository.findById(jobId)
+                .map(UserImportJobReport::getContent)
+                .orElseThrow(() -> new BaseException(ConstantUtil.RESOURCE_NOT_FOUND, HttpStatus.NOT_FOUND.value()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Renueva el heartbeat de los trabajos de este nodo y marca como fallidos los que nadie renueva: su
+     * nodo se cayó o se reinició y el trabajo, que solo existía en su pool, no va a terminar.
+     */
+    @Scheduled(fixedDelayString = "${app.users.import.heartbeat-interval:PT1M}",
+            initialDelayString = "${app.users.import.heartbeat-interval:PT1M}")
+    public void checkStaleJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            if (!localJobs.isEmpty()) {
+                userImportJobRepository.heartbeat(List.copyOf(localJobs), now);
+            }
+            int failed = userImportJobRepository.failStale(now.minus(staleAfter), now, ConstantUtil.IMPORT_INTERRUPTED);
+            if (failed > 0) {
+                logger.warn("[UserImportJobService] {} importaciones abandonadas marcadas como fallidas", failed);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("[UserImportJobService] No se pudieron revisar las importaciones abandonadas: {}", e.getMessage());
+        }
+    }
+
+    private UserImportJob findJob(UUID jobId, UUID organizationId) {
+        return userImportJobRepository.findByIdAndOrganizationId(jobId, organizationId)
+                .orElseThrow(() -> new BaseException(ConstantUtil.RESOURCE_NOT_FOUND, HttpStatus.NOT_FOUND.value()));
+    }
+
+    private void run(UUID jobId, Path upload, UUID organizationId) {
+        Path report = null;
+        try {
+            if (userImportJobRepository.markRunning(jobId, LocalDateTime.now()) == 0) {
+                logger.warn("[UserImportJobService] La importación {} ya no está en cola, no se ejecuta", jobId);
+                return;
+            }
+
+            report = Files.createTempFile("users-import-report-", ".csv");
+            try (BufferedWriter writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+                writer.write(REPORT_HEADER);
+                writer.newLine();
+                userImportEngine.importUsers(upload, organizationId, new JobListener(jobId, writer));
+            }
+
+            // El reporte está acotado a maxReportBytes, así que cargarlo entero es seguro
+            userImportJobReportRepository.save(new UserImportJobReport(jobId, Files.readAllBytes(report)));
+            finish(jobId, UserImportJob.Status.COMPLETED, null);
+        } catch (Exception e) {
+            logger.error("[UserImportJobService] La importación {} falló: {}", jobId, e.getMessage());
+            finish(jobId, UserImportJob.Status.FAILED, ConstantUtil.ERROR_PROCESSING_FILE);
+        } finally {
+            localJobs.remove(jobId);
+            release(organizationId);
+            deleteQuietly(upload);
+            deleteQuietly(report);
+        }
+    }
+
+    // Actualización condicional: no pisa un trabajo que el barrido de abandonados ya cerró ni su heartbeat
+    private void finish(UUID jobId, UserImportJob.Status status, String errorMessage) {
+        try {
+            if (userImportJobRepository.finish(jobId, status, errorMessage, LocalDateTime.now()) == 0) {
+                logger.warn("[UserImportJobService] La importación {} ya estaba cerrada, no se marca como {}", jobId, status);
+            }
+        } catch (RuntimeException e) {
+            logger.error("[UserImportJobService] No se pudo actualizar el estado de la importación {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    // La comprobación y el incremento van dentro de compute, atómico respecto al release que elimina la entrada
+    private boolean tryAcquire(UUID organizationId) {
+        boolean[] acquired = {false};
+        activeByOrganization.compute(organizationId, (id, active) -> {
+            int current = active == null ? 0 : active;
+            if (current >= maxConcurrentPerOrganization) {
+                return active;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void release(UUID organizationId) {
+        activeByOrganization.computeIfPresent(organizationId, (id, active) -> active <= 1 ? null : active - 1);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // El directorio temporal lo limpia el sistema operativo
+        }
+    }
+
+    private class JobListener implements UserImportListener {
+
+        private final UUID jobId;
+        private final BufferedWriter writer;
+        private long written;
+        private boolean truncated;
+
+        JobListener(UUID jobId, BufferedWriter writer) {
+            this.jobId = jobId;
+            this.writer = writer;
+        }
+
+        @Override
+        public void onRow(int rowNumber, String email, RowOutcome outcome, String detail) {
+            if (truncated) {
+                return;
+            }
+            String line = rowNumber + "," + csv(email) + "," + outcome.name() + "," + csv(detail);
+            long size = line.getBytes(StandardCharsets.UTF_8).length + 1L;
+            try {
+                if (written + size > maxReportBytes) {
+                    writer.write(REPORT_TRUNCATED);
+                    writer.newLine();
+                    truncated = true;
+                    return;
+                }
+                writer.write(line);
+                writer.newLine();
+                written += size;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void onChunk(UserImportSummary progress) {
+            userImportJobRepository.updateProgress(jobId, progress.processed(), progress.inserted(),
+                    progress.skipped(), progress.failed());
+        }
+
+        private static String csv(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+                return "\"" + value.replace("\"", "\"\"") + "\"";
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.dto.UserImportSummary;
+
+/**
+ * Recibe el resultado de cada fila y el avance acumulado tras confirmar cada bloque de una importación.
+ */
+public interface UserImportListener {
+
+    UserImportListener NONE = new UserImportListener() {
+    };
+
+    enum RowOutcome {
+        INSERTED,
+        ALREADY_EXISTS,
+        DUPLICATE_IN_FILE,
+        INVALID_EMAIL,
+        FAILED
+    }
+
+    default void onRow(int rowNumber, String email, RowOutcome outcome, String detail) {
+    }
+
+    default void onChunk(UserImportSummary progress) {
+    }
+}
@@ -1,15 +1,19 @@
 package com.cartagenacorp.lm_oauth.service;
 
+import com.cartagenacorp.lm_oauth.dto.CursorPageResponseDTO;
 import com.cartagenacorp.lm_oauth.dto.PageResponseDTO;
 import com.cartagenacorp.lm_oauth.dto.UserDTO;
 import com.cartagenacorp.lm_oauth.entity.User;
 import com.cartagenacorp.lm_oauth.dto.UserDtoResponse;
+import com.cartagenacorp.lm_oauth.dto.UserSnapshot;
 import com.cartagenacorp.lm_oauth.exceptions.BaseException;
 import com.cartagenacorp.lm_oauth.mapper.UserMapper;
 import com.cartagenacorp.lm_oauth.repository.UserRepository;
+import com.cartagenacorp.lm_oauth.repository.UserSearchIndexInitializer;
+import com.cartagenacorp.lm_oauth.security.AuthenticatedUser;
+import com.cartagenacorp.lm_oauth.security.UserRevocationRegistry;
 import com.cartagenacorp.lm_oauth.util.ConstantUtil;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.cartagenacorp.lm_oauth.util.CursorUtil;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -18,10 +22,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -29,45 +30,101 @@ import java.util.UUID;
 @Service
 public class UserService {
 
+    private static final int MAX_SCROLL_SIZE = 100;
+
     private final UserRepository userRepository;
     private final UserMapper userMapper;
     private final RoleExternalService roleExternalService;
     private final OrganizationExternalService organizationExternalService;
+    private final UserRevocationRegistry userRevocationRegistry;
+    private final UserSearchIndexInitializer userSearchIndexInitializer;
+    private final UserDirectoryCache userDirectoryCache;
 
     public UserService(UserRepository userRepository, UserMapper userMapper,
-                       RoleExternalService roleExternalService, OrganizationExternalService organizationExternalService) {
+                       RoleExternalService roleExternalService, OrganizationExternalService organizationExternalService,
+                       UserRevocationRegistry userRevocationRegistry, UserSearchIndexInitializer userSearchIndexInitializer,
+                       UserDirectoryCache userDirectoryCache) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
         this.roleExternalService = roleExternalService;
         this.organizationExternalService = organizationExternalService;
+        this.userRevocationRegistry = userRevocationRegistry;
+        this.userSearchIndexInitializer = userSearchIndexInitializer;
+        this.userDirectoryCache = userDirectoryCache;
     }
 
     public Boolean validateUser(UUID userId) {
-        return userRepository.existsById(userId);
+        return userDirectoryCache.findById(userId).isPresent();
     }
 
     public PageResponseDTO<UserDtoResponse> searchUsers(String search, int page, int size) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User authenticatedUser = (User) authentication.getPrincipal();
-        UUID authenticatedUserOrganizationId = authenticatedUser.getOrganizationId();
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) authentication.getPrincipal();
+        UUID authenticatedUserOrganizationId = authenticatedUser.organizationId();
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<User> result = userRepository.searchUsers(search, authenticatedUserOrganizationId, pageable);
+        Page<User> result = search(search, authenticatedUserOrganizationId, page, size);
         Page<UserDtoResponse> dtoPage = result.map(userMapper::toDto);
         return new PageResponseDTO<>(dtoPage);
     }
 
     public PageResponseDTO<UserDtoResponse> searchUsersByOrganizationId(String search, int page, int size, UUID organizationId) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<User> result = userRepository.searchUsers(search, organizationId, pageable);
+        Page<User> result = search(search, organizationId, page, size);
         Page<UserDtoResponse> dtoPage = result.map(userMapper::toDto);
         return new PageResponseDTO<>(dtoPage);
     }
 
+    public CursorPageResponseDTO<UserDtoResponse> scrollUsers(String search, String cursor, int size, boolean includeTotal) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) authentication.getPrincipal();
+        return scroll(search, cursor, size, includeTotal, authenticatedUser.organizationId());
+    }
+
+    public CursorPageResponseDTO<UserDtoResponse> scrollUsersByOrganizationId(String search, String cursor, int size,
+                                                                          boolean includeTotal, UUID organizationId) {
+        return scroll(search, cursor, size, includeTotal, organizationId);
+    }
+
+    private CursorPageResponseDTO<UserDtoResponse> scroll(String search, String cursor, int size, boolean includeTotal,
+                                                          UUID organizationId) {
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new BaseException(ConstantUtil.INVALID_INPUT, HttpStatus.BAD_REQUEST.value());
+        }
+        // Se pide un elemento de más para saber si existe una página siguiente sin hacer COUNT
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<User> users;
+        if (cursor == null || cursor.isBlank()) {
+            users = userRepository.scrollUsers(search, organizationId, limit);
+        } else {
+            CursorUtil.Position position = CursorUtil.decode(cursor);
+            users = position.createdAt() != null
+                    ? userRepository.scrollUsersAfter(search, organizationId, position.createdAt(), position.id(), limit)
+                    : userRepository.scrollUsersAfterUndated(search, organizationId, position.id(), limit);
+        }
+
+        boolean hasNext = users.size() > size;
+        List<User> pageContent = hasNext ? users.subList(0, size) : users;
+        String nextCursor = null;
+        if (hasNext) {
+            User last = pageContent.get(pageContent.size() - 1);
+            nextCursor = CursorUtil.encode(last.getCreatedAt(), last.getId());
+        }
+        Long total = includeTotal ? userRepository.countSearchUsers(search, organizationId) : null;
+
+        return new CursorPageResponseDTO<>(pageContent.stream().map(userMapper::toDto).toList(), nextCursor, hasNext, size, total);
+    }
+
+    private Page<User> search(String search, UUID organizationId, int page, int size) {
+        if (search != null && !search.isBlank() && userSearchIndexInitializer.isTrigramAvailable()) {
+            return userRepository.searchUsersRanked(search, organizationId, PageRequest.of(page, size));
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
+        return userRepository.searchUsers(search, organizationId, pageable);
+    }
+
     public UserDtoResponse assignRoleToUser(UUID userId, String roleName) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User authenticatedUser = (User) authentication.getPrincipal();
-        UUID authenticatedUserOrganizationId = authenticatedUser.getOrganizationId();
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) authentication.getPrincipal();
+        UUID authenticatedUserOrganizationId = authenticatedUser.organizationId();
 
         String token = null;
         if (authentication != null) {
@@ -77,7 +134,7 @@ public class UserService {
         String superAdminRole = "SUPER_ADMIN";
 
         if (superAdminRole.equalsIgnoreCase(roleName)
-                && !superAdminRole.equals(authenticatedUser.getRole())) {
+                && !superAdminRole.equals(authenticatedUser.role())) {
             throw new BaseException(ConstantUtil.EXCLUSIVE_SUPER_ADMIN_ROL, HttpStatus.FORBIDDEN.value());
         }
 
@@ -90,15 +147,18 @@ public class UserService {
 
         user.setRole(roleName);
         User updatedUser = userRepository.save(user);
+        userRevocationRegistry.revoke(updatedUser.getId());
         return userMapper.toDto(updatedUser);
     }
 
     public UserDtoResponse getUserById(UUID id) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User authenticatedUser = (User) authentication.getPrincipal();
-        UUID authenticatedUserOrganizationId = authenticatedUser.getOrganizationId();
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) authentication.getPrincipal();
+        UUID authenticatedUserOrganizationId = authenticatedUser.organizationId();
 
-        User user = userRepository.findByIdAndOrganizationId(id, authenticatedUserOrganizationId)
+        UserSnapshot user = userDirectoryCache.findById(id)
+                .filter(snapshot -> snapshot.organizationId() != null
+                        && snapshot.organizationId().equals(authenticatedUserOrganizationId))
                 .orElseThrow(() -> new BaseException(ConstantUtil.RESOURCE_NOT_FOUND, HttpStatus.NOT_FOUND.value()));
 
         return userMapper.toDto(user);
@@ -108,16 +168,15 @@ public class UserService {
         if (ids == null || ids.isEmpty()) {
             return Collections.emptyList();
         }
-        List<User> users = userRepository.findAllById(ids);
-        return users.stream().map(userMapper::toDto).toList();
+        return userDirectoryCache.findAllById(ids).stream().map(userMapper::toDto).toList();
     }
 
     public UserDtoResponse addUser(UserDTO userDTO) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         Object principal = authentication.getPrincipal();
 
-        if (principal instanceof User authenticatedUser) {
-            UUID organizationId = authenticatedUser.getOrganizationId();
+        if (principal instanceof AuthenticatedUser authenticatedUser) {
+            UUID organizationId = authenticatedUser.organizationId();
 
             if (userRepository.existsByEmail(userDTO.getEmail())) {
                 throw new BaseException(ConstantUtil.DUPLICATE_EMAIL, HttpStatus.BAD_REQUEST.value());
@@ -154,13 +213,14 @@ public class UserService {
 
     public void deleteUser(UUID id) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User authenticatedUser = (User) authentication.getPrincipal();
-        UUID authenticatedUserOrganizationId = authenticatedUser.getOrganizationId();
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) authentication.getPrincipal();
+        UUID authenticatedUserOrganizationId = authenticatedUser.organizationId();
 
         User user = userRepository.findByIdAndOrganizationId(id, authenticatedUserOrganizationId)
                 .orElseThrow(() -> new BaseException(ConstantUtil.RESOURCE_NOT_FOUND, HttpStatus.NOT_FOUND.value()));
 
         userRepository.delete(user);
+        userRevocationRegistry.revoke(user.getId());
     }
 
     public UserDtoResponse changeUserOrganization(UserDTO userDTO) {
@@ -185,50 +245,7 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
+        userRevocationRegistry.revoke(updatedUser.getId());
         return userMapper.toDto(updatedUser);
     }
-
-    public void importUsers(MultipartFile file) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        Object principal = authentication.getPrincipal();
-        UUID organizationId = null;
-
-        if (principal instanceof User authenticatedUser) {
-            organizationId = authenticatedUser.getOrganizationId();
-        }
-
-        List<User> users = new ArrayList<>();
-
-        try (InputStream inputStream = file.getInputStream();
-             Workbook workbook = new XSSFWorkbook(inputStream)) {
-
-            Sheet sheet = workbook.getSheetAt(0);
-
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-
-                Cell emailCell = row.getCell(0);
-                if (emailCell == null || emailCell.getCellType() != CellType.STRING) continue;
-
-                String email = emailCell.getStringCellValue().trim();
-
-                if (!userRepository.existsByEmail(email)) {
-                    User user = new User();
-                    user.setEmail(email);
-                    user.setFirstName(null);
-                    user.setLastName(null);
-                    user.setGoogleId(null);
-                    user.setPicture(null);
-                    user.setRole(null);
-                    user.setOrganizationId(organizationId);
-                    users.add(user);
-                }
-            }
-        } catch (Exception e) {
-            throw new BaseException(ConstantUtil.ERROR_PROCESSING_FILE, HttpStatus.BAD_REQUEST.value());
-        }
-
-        userRepository.saveAll(users);
-    }
 }
@@ -0,0 +1,43 @@
+package com.cartagenacorp.lm_oauth.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket sin bloqueos implementado como GCRA: en lugar de contar tokens guarda el instante teórico
+ * de la siguiente petición en un único {@link AtomicLong} y lo avanza con CAS. Admite ráfagas de
+ * {@code capacity} peticiones y recupera un permiso cada {@code period / capacity}.
+ */
+public class AtomicTokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public AtomicTokenBucket(int capacity, Duration period) {
+        if (capacity <= 0 || period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("La capacidad y el periodo deben ser positivos");
+        }
+        this.intervalNanos = Math.max(1, period.toNanos() / capacity);
+        this.toleranceNanos = intervalNanos * (capacity - 1);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Consume un permiso si hay disponible. Devuelve 0 si se concede o los nanosegundos hasta el siguiente permiso.
+     */
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long start = arrival - now > 0 ? arrival : now;
+            long wait = start - now - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.cartagenacorp.lm_oauth.util;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plantilla precompilada en segmentos literales y marcadores {@code {{NOMBRE}}}. El texto se analiza una
+ * sola vez; cada render calcula el tamaño exacto del resultado y escribe en un único buffer.
+ */
+public class CompiledTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{\\s*([A-Z][A-Z0-9_]*)\\s*}}");
+
+    private final String name;
+    // literals tiene siempre un elemento más que placeholders: literal, marcador, literal, ...
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+    private final boolean escapeHtml;
+
+    private CompiledTemplate(String name, String[] literals, String[] placeholders, boolean escapeHtml) {
+        this.name = name;
+        this.literals = literals;
+        this.placeholders = placeholders;
+        this.escapeHtml = escapeHtml;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static CompiledTemplate compile(String name, String source, boolean escapeHtml) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(source);
+        int position = 0;
+        while (matcher.find()) {
+            literals.add(source.substring(position, matcher.start()));
+            placeholders.add(matcher.group(1));
+            position = matcher.end();
+        }
+        literals.add(source.substring(position));
+        return new CompiledTemplate(name, literals.toArray(String[]::new), placeholders.toArray(String[]::new), escapeHtml);
+    }
+
+    public Set<String> getPlaceholders() {
+        return new LinkedHashSet<>(Arrays.asList(placeholders));
+    }
+
+    /**
+     * Sustituye los marcadores por las variables. En plantillas HTML los valores se escapan.
+     *
+     * @throws IllegalArgumentException si falta alguna variable usada por la plantilla
+     */
+    public String render(Map<String, String> variables) {
+        String[] values = new String[placeholders.length];
+        int length = literalLength;
+        for (int i = 0; i < placeholders.length; i++) {
+            String value = variables.get(placeholders[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("Falta la variable " + placeholders[i] + " en la plantilla " + name);
+            }
+            values[i] = escapeHtml ? HtmlUtils.htmlEscape(value) : value;
+            length += values[i].length();
+        }
+
+        StringBuilder output = new StringBuilder(length);
+        output.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            output.append(values[i]).append(literals[i + 1]);
+        }
+        return output.toString();
+    }
+}
@@ -11,11 +11,19 @@ public class ConstantUtil {
     public static final String DATA_INTEGRITY_FAIL_MESSAGE = "Problemas con la integridad de los datos";
     public static final String RESOURCE_NOT_FOUND = "Recurso no encontrado";
     public static final String INVALID_INPUT = "Entrada inválida";
+    public static final String REQUEST_BODY_TOO_LARGE = "El cuerpo de la petición es demasiado grande";
     public static final String INVALID_UUID = "El ID proporcionado no es un UUID válido";
+    public static final String INVALID_CURSOR = "El cursor de paginación no es válido";
     public static final String DUPLICATE_EMAIL = "El correo electrónico ya está en uso";
     public static final String ROLE_NOT_FOUND = "El rol no existe";
     public static final String ORGANIZATION_NOT_FOUND = "La organización no existe";
     public static final String ERROR_PROCESSING_FILE = "Error procesando el archivo";
+    public static final String IMPORT_ALREADY_RUNNING = "Ya hay una importación de usuarios en curso para la organización";
+    public static final String IMPORT_QUEUE_FULL = "Hay demasiadas importaciones en cola, inténtelo más tarde";
+    public static final String PASSWORD_HASHING_BUSY = "El servicio está saturado, inténtelo de nuevo en unos segundos";
+    public static final String IMPORT_INTERRUPTED = "La importación se interrumpió porque el servicio se detuvo";
+    public static final String IMPORT_REPORT_NOT_READY = "El reporte de la importación aún no está disponible";
+    public static final String OTP_PARTITIONING_UNAVAILABLE = "El particionado de OTP no está habilitado o ya hay un mantenimiento en curso";
     public static final String INTERNAL_SERVER_ERROR = "Error interno del servidor";
     public static final String ACCESS_EXCEPTION = "El servicio externo no está disponible o no se pudo acceder a él";
     public static final String EXCLUSIVE_SUPER_ADMIN_ROL = "El rol SUPER_ADMIN es reservado para el administrador de LA MURALLA";
@@ -27,6 +35,8 @@ public class ConstantUtil {
         public static final String USERS_IMPORT = "Usuarios importados correctamente";
         public static final String ROLE_ASSIGNED = "Rol del usuario actualizado";
         public static final String USERS_OBTAINED = "Listado de usuarios obtenido";
+        public static final String PERMISSIONS_EVICTED = "Caché de permisos invalidada";
+        public static final String OTP_PARTITIONING_STARTED = "Conversión de la tabla de OTP iniciada; el resultado queda en el log";
 
         public Success() {
             throw new IllegalStateException("Util class");
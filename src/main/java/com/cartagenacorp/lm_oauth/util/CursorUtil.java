@@ -0,0 +1,39 @@
+package com.cartagenacorp.lm_oauth.util;
+
+import com.cartagenacorp.lm_oauth.exceptions.BaseException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Codifica la posición (createdAt, id) del último elemento de una página como un token opaco. Un createdAt
+ * nulo se codifica vacío y se decodifica como null.
+ */
+public class CursorUtil {
+
+    private CursorUtil() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public record Position(LocalDateTime createdAt, UUID id) {
+    }
+
+    public static String encode(LocalDateTime createdAt, UUID id) {
+        String raw = (createdAt != null ? createdAt.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Position decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            String createdAt = raw.substring(0, separator);
+            return new Position(createdAt.isEmpty() ? null : LocalDateTime.parse(createdAt), UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException ex) {
+            throw new BaseException(ConstantUtil.INVALID_CURSOR, HttpStatus.BAD_REQUEST.value());
+        }
+    }
+}
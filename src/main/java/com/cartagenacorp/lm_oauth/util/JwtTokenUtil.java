@@ -1,20 +1,27 @@
 package com.cartagenacorp.lm_oauth.util;
+import com.cartagenacorp.lm_oauth.security.JwtKeyRing;
+import com.cartagenacorp.lm_oauth.security.VerifiedToken;
 import io.jsonwebtoken.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.function.Function;
 
 @Component
 public class JwtTokenUtil {
 
-    @Value("${app.jwt.secret}")
-    private String secret;
-
     @Value("${app.jwt.expiration}")
     private long expiration;
 
+    private final JwtKeyRing jwtKeyRing;
+
+    private final JwtParser jwtParser;
+
+    public JwtTokenUtil(JwtKeyRing jwtKeyRing) {
+        this.jwtKeyRing = jwtKeyRing;
+        this.jwtParser = Jwts.parserBuilder().setSigningKeyResolver(jwtKeyRing).build();
+    }
+
     public String generateToken(String userId, String email, String givenName, String familyName, String picture, String role, List<String> permissions, UUID organizationId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("email", email);
@@ -28,39 +35,45 @@ public class JwtTokenUtil {
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(SignatureAlgorithm.HS256, secret)
+                .setExpiration(new Date(System.currentTimeMillis() + expiration));
+        if (jwtKeyRing.isAsymmetric()) {
+            builder.setHeaderParam(JwsHeader.KEY_ID, jwtKeyRing.getActiveKeyId());
+        }
+        return builder
+                .signWith(jwtKeyRing.getSigningKey(), jwtKeyRing.getAlgorithm())
                 .compact();
     }
 
-    public String getUserIdFromToken(String token) {
-        return getClaimFromToken(token, Claims::getSubject);
+    /**
+     * Verifica la firma y la expiración del token una sola vez y devuelve los claims ya decodificados.
+     *
+     * @throws JwtException si el token no es válido o ha expirado
+     */
+    public VerifiedToken verifyToken(String token) {
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        return toVerifiedToken(claims);
     }
 
-    public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = getAllClaimsFromToken(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
-    }
-
-    public boolean validateToken(String token) {
-        try {
-            Jwts.parser().setSigningKey(secret).parseClaimsJws(token);
-            return true;
-        } catch (JwtException e) {
-            return false;
-        }
+    public UUID getUserUUIDFromToken(String token) {
+        return verifyToken(token).userId();
     }
 
-    public UUID getUserUUIDFromToken(String token) {
-        String userId = getUserIdFromToken(token);
-        return UUID.fromString(userId);
+    @SuppressWarnings("unchecked")
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        Object organizationId = claims.get("organization_id");
+        List<String> permissions = claims.get("permissions", List.class);
+        return new VerifiedToken(
+                UUID.fromString(claims.getSubject()),
+                claims.get("email", String.class),
+                claims.get("role", String.class),
+                organizationId != null ? UUID.fromString(organizationId.toString()) : null,
+                permissions,
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null
+        );
     }
 }
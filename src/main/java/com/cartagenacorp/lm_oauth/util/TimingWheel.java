@@ -0,0 +1,123 @@
+package com.cartagenacorp.lm_oauth.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timing wheel jerárquico. El nivel 0 tiene {@code wheelSize} ranuras de {@code tickMillis}; cada nivel
+ * superior cubre {@code wheelSize} veces el rango del anterior y se crea cuando hace falta. Programar y
+ * cancelar cuesta O(1); al avanzar, las ranuras de los niveles altos se redistribuyen hacia abajo.
+ */
+public class TimingWheel<T> {
+
+    public static final class Timeout<T> {
+        private final T value;
+        private final long deadlineTick;
+        private volatile boolean cancelled;
+
+        private Timeout(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * La entrada se descarta cuando el reloj llegue a su ranura.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<ArrayDeque<Timeout<T>>[]> levels = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMillis debe ser positivo y wheelSize al menos 2");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTick = startMillis / tickMillis;
+        addLevel();
+    }
+
+    public synchronized Timeout<T> schedule(T value, long deadlineMillis) {
+        // Se redondea hacia arriba para no expirar nunca antes del plazo; lo ya vencido sale en el siguiente avance
+        long deadlineTick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(value, deadlineTick);
+        place(timeout, null);
+        return timeout;
+    }
+
+    /**
+     * Avanza el reloj hasta {@code nowMillis} y devuelve los valores vencidos que no estaban cancelados.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Primero los niveles altos, para que sus entradas bajen antes de vaciar el nivel 0
+            long span = 1;
+            for (int level = 1; level < levels.size(); level++) {
+                span *= wheelSize;
+                if (currentTick % span == 0) {
+                    cascade(levels.get(level)[(int) Math.floorMod(currentTick / span, wheelSize)], expired);
+                }
+            }
+            cascade(levels.get(0)[(int) Math.floorMod(currentTick, wheelSize)], expired);
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade(ArrayDeque<Timeout<T>> bucket, List<T> expired) {
+        int pending = bucket.size();
+        for (int i = 0; i < pending; i++) {
+            Timeout<T> timeout = bucket.poll();
+            size--;
+            if (!timeout.cancelled) {
+                place(timeout, expired);
+            }
+        }
+    }
+
+    private void place(Timeout<T> timeout, List<T> expired) {
+        if (timeout.deadlineTick <= currentTick) {
+            expired.add(timeout.value);
+            return;
+        }
+        long span = 1;
+        int level = 0;
+        // Nivel más bajo en el que la ranura destino está dentro de la vuelta actual
+        while (timeout.deadlineTick / span - currentTick / span >= wheelSize) {
+            span *= wheelSize;
+            level++;
+            if (level == levels.size()) {
+                addLevel();
+            }
+        }
+        levels.get(level)[(int) Math.floorMod(timeout.deadlineTick / span, wheelSize)].add(timeout);
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addLevel() {
+        ArrayDeque<Timeout<T>>[] buckets = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        levels.add(buckets);
+    }
+}
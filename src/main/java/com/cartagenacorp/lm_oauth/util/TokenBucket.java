@@ -0,0 +1,63 @@
+package com.cartagenacorp.lm_oauth.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limitador de tasa de tipo token bucket. Admite pedir más permisos de los que caben en el bucket
+ * (por ejemplo un envío masivo); la deuda se paga esperando antes de la siguiente petición.
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double permitsPerSecond, double capacity) {
+        if (permitsPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("La tasa y la capacidad deben ser positivas");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Bloquea hasta que los permisos pedidos estén disponibles.
+     */
+    public void acquire(int permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Descuenta los permisos y devuelve cuántos nanosegundos hay que esperar antes de usarlos.
+     */
+    public synchronized long reserve(int permits) {
+        refill();
+        tokens -= permits;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permitsPerNano);
+    }
+
+    /**
+     * Vacía el bucket, por ejemplo cuando el proveedor responde con throttling.
+     */
+    public synchronized void drain() {
+        refill();
+        tokens = Math.min(tokens, 0);
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerNano * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,289 @@
+package com.cartagenacorp.lm_oauth.util;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Lectura de la primera hoja de un XLSX con SAX: las filas se entregan a medida que se parsean y nunca se
+ * construye el árbol completo del libro. La tabla de textos compartidos tampoco se carga en memoria: se
+ * vuelca a un archivo temporal con un índice de posiciones y se consulta por acceso directo.
+ */
+public class XlsxStreamReader {
+
+    private XlsxStreamReader() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * @param rowNumber número de fila tal como lo muestra Excel (la cabecera es la fila 1)
+         * @param value     texto de la primera columna, ya recortado
+         */
+        void onRow(int rowNumber, String value);
+    }
+
+    /**
+     * Recorre la primera columna de la primera hoja, sin la fila de cabecera. Como la lectura anterior con
+     * XSSFWorkbook, solo se tienen en cuenta las celdas de texto: se omiten las vacías, las numéricas, las
+     * booleanas y las fórmulas.
+     */
+    public static void readFirstColumn(Path file, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+             SharedStrings strings = SharedStrings.load(pkg)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new FirstColumnHandler(strings, handler));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("No se pudo leer el archivo XLSX", e);
+        }
+    }
+
+    private static class FirstColumnHandler extends DefaultHandler {
+
+        private final SharedStrings strings;
+        private final RowHandler handler;
+        private final StringBuilder text = new StringBuilder();
+
+        private int rowIndex = -1;
+        private int columnIndex;
+        private boolean firstColumn;
+        private String cellType;
+        private boolean formula;
+        private boolean capturing;
+
+        FirstColumnHandler(SharedStrings strings, RowHandler handler) {
+            this.strings = strings;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    // r es opcional: sin él la fila es la siguiente a la anterior
+                    String reference = attributes.getValue("r");
+                    rowIndex = reference != null ? Integer.parseInt(reference) - 1 : rowIndex + 1;
+                    columnIndex = -1;
+                }
+                case "c" -> {
+                    String reference = attributes.getValue("r");
+                    columnIndex = reference != null ? new CellReference(reference).getCol() : columnIndex + 1;
+                    firstColumn = columnIndex == 0;
+                    cellType = attributes.getValue("t");
+                    formula = false;
+                    text.setLength(0);
+                }
+                case "f" -> formula = true;
+                case "v", "t" -> capturing = firstColumn;
+                default -> { }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (capturing) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v", "t" -> capturing = false;
+                case "c" -> {
+                    if (firstColumn && rowIndex > 0 && !formula) {
+                        String value = stringValue();
+                        if (value != null && !value.isBlank()) {
+                            handler.onRow(rowIndex + 1, value.trim());
+                        }
+                    }
+                    firstColumn = false;
+                }
+                default -> { }
+            }
+        }
+
+        private String stringValue() throws SAXException {
+            if (cellType == null) {
+                return null;
+            }
+            return switch (cellType) {
+                case "s" -> {
+                    try {
+                        yield strings.get(Integer.parseInt(text.toString().trim()));
+                    } catch (NumberFormatException | IOException e) {
+                        throw new SAXException("Texto compartido no válido en la fila " + (rowIndex + 1), e);
+                    }
+                }
+                case "inlineStr", "str" -> text.toString();
+                default -> null;
+            };
+        }
+    }
+
+    /**
+     * Textos compartidos del libro en un archivo temporal: cada texto se guarda como longitud más bytes UTF-8
+     * y un segundo archivo guarda la posición de cada uno, de modo que leer el texto {@code i} son dos
+     * lecturas posicionales y la memoria no depende del tamaño del libro.
+     */
+    private static final class SharedStrings implements Closeable {
+
+        private final Path dataFile;
+        private final Path indexFile;
+        private final FileChannel data;
+        private final FileChannel index;
+        private final int count;
+
+        private SharedStrings(Path dataFile, Path indexFile, int count) throws IOException {
+            this.dataFile = dataFile;
+            this.indexFile = indexFile;
+            this.count = count;
+            this.data = FileChannel.open(dataFile, StandardOpenOption.READ);
+            this.index = FileChannel.open(indexFile, StandardOpenOption.READ);
+        }
+
+        static SharedStrings load(OPCPackage pkg) throws IOException, SAXException, ParserConfigurationException {
+            Path dataFile = Files.createTempFile("xlsx-strings-", ".bin");
+            Path indexFile = Files.createTempFile("xlsx-strings-", ".idx");
+            try {
+                int count = 0;
+                List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+                if (!parts.isEmpty()) {
+                    try (DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataFile)));
+                         DataOutputStream indexOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)));
+                         InputStream in = parts.get(0).getInputStream()) {
+                        SharedStringsWriter writer = new SharedStringsWriter(dataOut, indexOut);
+                        XMLReader parser = XMLHelper.newXMLReader();
+                        parser.setContentHandler(writer);
+                        parser.parse(new InputSource(in));
+                        count = writer.count;
+                    }
+                }
+                return new SharedStrings(dataFile, indexFile, count);
+            } catch (IOException | SAXException | ParserConfigurationException | RuntimeException e) {
+                Files.deleteIfExists(dataFile);
+                Files.deleteIfExists(indexFile);
+                throw e;
+            }
+        }
+
+        String get(int i) throws IOException {
+            if (i < 0 || i >= count) {
+                throw new IOException("Índice de texto compartido fuera de rango: " + i);
+            }
+            long position = readFully(index, ByteBuffer.allocate(Long.BYTES), (long) i * Long.BYTES).getLong();
+            int length = readFully(data, ByteBuffer.allocate(Integer.BYTES), position).getInt();
+            ByteBuffer bytes = readFully(data, ByteBuffer.allocate(length), position + Integer.BYTES);
+            return new String(bytes.array(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                data.close();
+                index.close();
+            } finally {
+                Files.deleteIfExists(dataFile);
+                Files.deleteIfExists(indexFile);
+            }
+        }
+
+        private static ByteBuffer readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new EOFException("Archivo de textos compartidos truncado");
+                }
+            }
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Vuelca cada {@code <si>} de sharedStrings.xml concatenando sus {@code <t>}, sin las lecturas fonéticas.
+     */
+    private static final class SharedStringsWriter extends DefaultHandler {
+
+        private final DataOutputStream data;
+        private final DataOutputStream index;
+        private final StringBuilder text = new StringBuilder();
+
+        private long position;
+        private int count;
+        private boolean phonetic;
+        private boolean capturing;
+
+        SharedStringsWriter(DataOutputStream data, DataOutputStream index) {
+            this.data = data;
+            this.index = index;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "si" -> text.setLength(0);
+                case "rPh" -> phonetic = true;
+                case "t" -> capturing = !phonetic;
+                default -> { }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (capturing) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "rPh" -> phonetic = false;
+                case "t" -> capturing = false;
+                case "si" -> {
+                    byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+                    try {
+                        index.writeLong(position);
+                        data.writeInt(bytes.length);
+                        data.write(bytes);
+                    } catch (IOException e) {
+                        throw new SAXException("No se pudo escribir la tabla de textos compartidos", e);
+                    }
+                    position += Integer.BYTES + bytes.length;
+                    count++;
+                }
+                default -> { }
+            }
+        }
+    }
+}
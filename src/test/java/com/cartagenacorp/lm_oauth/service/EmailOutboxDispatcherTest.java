@@ -0,0 +1,148 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.entity.EmailOutbox;
+import com.cartagenacorp.lm_oauth.event.EmailQueuedEvent;
+import com.cartagenacorp.lm_oauth.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class EmailOutboxDispatcherTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final Duration SEND_LEASE = Duration.ofMinutes(1);
+    private static final int MAX_ATTEMPTS = 5;
+
+    private EmailOutboxRepository emailOutboxRepository;
+    private EmailService emailService;
+    private SesSendScheduler sesSendScheduler;
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        emailOutboxRepository = mock(EmailOutboxRepository.class);
+        emailService = mock(EmailService.class);
+        sesSendScheduler = mock(SesSendScheduler.class);
+        when(sesSendScheduler.sendableWithin(SEND_LEASE)).thenReturn(100);
+        dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, mock(EmailOutboxService.class), emailService,
+                sesSendScheduler, 2, 100, MAX_ATTEMPTS, Duration.ofSeconds(5), Duration.ofMinutes(10), SEND_LEASE,
+                50, Period.ofDays(7));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void sweepClaimsNoMoreThanSesCanSendWithinTheLease() {
+        when(sesSendScheduler.sendableWithin(SEND_LEASE)).thenReturn(3);
+
+        dispatcher.sweep();
+
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> lockedUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(emailOutboxRepository).claimDue(now.capture(), lockedUntil.capture(), eq(3));
+        assertThat(Duration.between(now.getValue(), lockedUntil.getValue())).isEqualTo(SEND_LEASE);
+    }
+
+    @Test
+    void sweepDoesNotClaimWhenSesHasNoCapacity() {
+        when(sesSendScheduler.sendableWithin(SEND_LEASE)).thenReturn(0);
+
+        dispatcher.sweep();
+
+        verify(emailOutboxRepository, never()).claimDue(any(), any(), anyInt());
+    }
+
+    @Test
+    void queuedEmailIsClaimedByIdAndMarkedSentWithItsAttempt() {
+        EmailOutbox email = email(1);
+        when(emailOutboxRepository.claim(eq(email.getId()), any(), any())).thenReturn(List.of(email));
+        when(emailService.sendTemplate(any(), any(), any())).thenReturn(CompletableFuture.completedFuture("message-1"));
+
+        dispatcher.onEmailQueued(new EmailQueuedEvent(email.getId()));
+
+        verify(emailOutboxRepository, timeout(TIMEOUT_MILLIS)).markSent(eq(email.getId()), eq(1), eq("message-1"), any());
+    }
+
+    @Test
+    void queuedEmailIsLeftForTheSweepWhenSesHasNoCapacity() {
+        when(sesSendScheduler.sendableWithin(SEND_LEASE)).thenReturn(0);
+
+        dispatcher.onEmailQueued(new EmailQueuedEvent(UUID.randomUUID()));
+
+        verify(emailOutboxRepository, after(200).never()).claim(any(), any(), any());
+    }
+
+    @Test
+    void transientFailureSchedulesARetry() {
+        EmailOutbox email = email(2);
+        when(emailOutboxRepository.claimDue(any(), any(), anyInt())).thenReturn(List.of(email));
+        when(emailService.sendTemplate(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("timeout")));
+
+        dispatcher.sweep();
+
+        verify(emailOutboxRepository, timeout(TIMEOUT_MILLIS)).markRetry(eq(email.getId()), eq(2), any(), eq("timeout"));
+        verify(emailOutboxRepository, never()).markFailed(any(), anyInt(), any());
+    }
+
+    @Test
+    void permanentFailureMarksTheEmailFailed() {
+        EmailOutbox email = email(1);
+        when(emailOutboxRepository.claimDue(any(), any(), anyInt())).thenReturn(List.of(email));
+        when(emailService.sendTemplate(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalArgumentException("plantilla desconocida")));
+
+        dispatcher.sweep();
+
+        verify(emailOutboxRepository, timeout(TIMEOUT_MILLIS)).markFailed(email.getId(), 1, "plantilla desconocida");
+        verify(emailOutboxRepository, never()).markRetry(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void lastAttemptMarksTheEmailFailed() {
+        EmailOutbox email = email(MAX_ATTEMPTS);
+        when(emailOutboxRepository.claimDue(any(), any(), anyInt())).thenReturn(List.of(email));
+        when(emailService.sendTemplate(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("timeout")));
+
+        dispatcher.sweep();
+
+        verify(emailOutboxRepository, timeout(TIMEOUT_MILLIS)).markFailed(email.getId(), MAX_ATTEMPTS, "timeout");
+    }
+
+    @Test
+    void purgeStopsAtTheFirstPartialBatch() {
+        when(emailOutboxRepository.deleteFinishedBefore(any(), anyInt())).thenReturn(1000, 10);
+
+        dispatcher.purge();
+
+        verify(emailOutboxRepository, times(2)).deleteFinishedBefore(any(), eq(1000));
+    }
+
+    private static EmailOutbox email(int attempts) {
+        EmailOutbox email = new EmailOutbox();
+        email.setId(UUID.randomUUID());
+        email.setRecipient("user@example.com");
+        email.setTemplate("otp");
+        email.setVariables("{}");
+        email.setAttempts(attempts);
+        return email;
+    }
+}
@@ -0,0 +1,196 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.repository.OtpPartitionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OtpRetentionServiceTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final int PREMAKE_DAYS = 2;
+    private static final int BATCH_SIZE = 10;
+    private static final int MAX_BATCHES = 3;
+
+    private final LocalDate today = LocalDate.now();
+
+    private OtpPartitionRepository otpPartitionRepository;
+    private OtpPartitionRepository.Session session;
+    private OtpRetentionService service;
+
+    @BeforeEach
+    void setUp() {
+        otpPartitionRepository = mock(OtpPartitionRepository.class);
+        session = mock(OtpPartitionRepository.Session.class);
+        when(otpPartitionRepository.runExclusive(any(), any())).thenAnswer(invocation -> {
+            Consumer<OtpPartitionRepository.Session> work = invocation.getArgument(1);
+            work.accept(session);
+            return true;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void purgeCreatesUpcomingPartitionsAndDropsTheExpiredOnes() {
+        service = service(true, false);
+        when(session.isPartitioned()).thenReturn(true);
+        when(session.partitionDays()).thenReturn(List.of(
+                today.minusDays(40), today.minusDays(31), today.minusDays(29), today));
+
+        service.purge();
+
+        verify(session, timeout(TIMEOUT_MILLIS)).tableExists(OtpPartitionRepository.LEGACY_TABLE);
+        verify(session).createPartition(today.plusDays(1));
+        verify(session).createPartition(today.plusDays(2));
+        verify(session, never()).createPartition(today);
+        verify(session).dropPartition(today.minusDays(40));
+        verify(session).dropPartition(today.minusDays(31));
+        verify(session, never()).dropPartition(today.minusDays(29));
+        verify(session, never()).deleteOlderThan(any(), any(), anyInt());
+    }
+
+    @Test
+    void purgeFinishesInterruptedDetachesBeforeDroppingPartitions() {
+        service = service(true, false);
+        when(session.isPartitioned()).thenReturn(true);
+        when(session.pendingDetachDays()).thenReturn(List.of(today.minusDays(45)));
+        when(session.orphanPartitionDays()).thenReturn(List.of(today.minusDays(50)));
+
+        service.purge();
+
+        verify(session, timeout(TIMEOUT_MILLIS)).tableExists(OtpPartitionRepository.LEGACY_TABLE);
+        verify(session).finalizeDetach(today.minusDays(45));
+        verify(session).dropDetachedPartition(today.minusDays(50));
+    }
+
+    @Test
+    void aPartitionThatCannotBeDroppedDoesNotStopTheOthers() {
+        service = service(true, false);
+        when(session.isPartitioned()).thenReturn(true);
+        when(session.partitionDays()).thenReturn(List.of(today.minusDays(40), today.minusDays(31)));
+        doThrow(new QueryTimeoutException("lock_timeout")).when(session).dropPartition(today.minusDays(40));
+
+        service.purge();
+
+        verify(session, timeout(TIMEOUT_MILLIS)).tableExists(OtpPartitionRepository.LEGACY_TABLE);
+        verify(session).dropPartition(today.minusDays(31));
+    }
+
+    @Test
+    void purgeDropsTheLegacyTableOnceItIsEmpty() {
+        service = service(true, false);
+        when(session.isPartitioned()).thenReturn(true);
+        when(session.tableExists(OtpPartitionRepository.LEGACY_TABLE)).thenReturn(true);
+        when(session.isEmpty(OtpPartitionRepository.LEGACY_TABLE)).thenReturn(true);
+
+        service.purge();
+
+        verify(session, timeout(TIMEOUT_MILLIS)).dropTable(OtpPartitionRepository.LEGACY_TABLE);
+        verify(session).deleteOlderThan(eq(OtpPartitionRepository.LEGACY_TABLE), any(), eq(BATCH_SIZE));
+    }
+
+    @Test
+    void purgeOfAPlainTableStopsAtTheFirstPartialBatch() {
+        service = service(true, false);
+        when(session.deleteOlderThan(eq("otp"), any(), eq(BATCH_SIZE))).thenReturn(BATCH_SIZE, 4);
+
+        service.purge();
+
+        verify(session, timeout(TIMEOUT_MILLIS).times(2)).deleteOlderThan(eq("otp"), any(), eq(BATCH_SIZE));
+        verify(session, after(200).times(2)).deleteOlderThan(eq("otp"), any(), eq(BATCH_SIZE));
+        verify(session, never()).createPartition(any());
+    }
+
+    @Test
+    void purgeOfAPlainTableDeletesAtMostMaxBatches() {
+        service = service(true, false);
+        when(session.deleteOlderThan(eq("otp"), any(), eq(BATCH_SIZE))).thenReturn(BATCH_SIZE);
+
+        service.purge();
+
+        verify(session, timeout(TIMEOUT_MILLIS).times(MAX_BATCHES)).deleteOlderThan(eq("otp"), any(), eq(BATCH_SIZE));
+        verify(session, after(200).times(MAX_BATCHES)).deleteOlderThan(eq("otp"), any(), eq(BATCH_SIZE));
+    }
+
+    @Test
+    void purgeDoesNothingWhenRetentionIsDisabled() {
+        service = service(false, false);
+
+        service.purge();
+
+        verify(otpPartitionRepository, after(200).never()).runExclusive(any(), any());
+    }
+
+    @Test
+    void partitioningMustBeExplicitlyEnabled() {
+        service = service(true, false);
+
+        assertThat(service.requestPartitioning()).isFalse();
+        verify(otpPartitionRepository, after(200).never()).runExclusive(any(), any());
+    }
+
+    @Test
+    void requestPartitioningBuildsTheIndexesAndMigrates() {
+        service = service(true, true);
+
+        assertThat(service.requestPartitioning()).isTrue();
+
+        verify(session, timeout(TIMEOUT_MILLIS)).migrateToPartitioned(today.minusDays(1), today.plusDays(PREMAKE_DAYS));
+        verify(session).createIndexesConcurrently("otp");
+    }
+
+    @Test
+    void requestPartitioningOfAPartitionedTableDoesNotMigrateAgain() {
+        service = service(true, true);
+        when(session.isPartitioned()).thenReturn(true);
+
+        assertThat(service.requestPartitioning()).isTrue();
+
+        verify(otpPartitionRepository, timeout(TIMEOUT_MILLIS)).runExclusive(any(), any());
+        verify(session, after(200).never()).migrateToPartitioned(any(), any());
+    }
+
+    @Test
+    void onlyOneMaintenanceRunsAtATime() throws Exception {
+        service = service(true, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(otpPartitionRepository.runExclusive(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            return true;
+        });
+
+        service.purge();
+        assertThat(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+
+        assertThat(service.requestPartitioning()).isFalse();
+        release.countDown();
+    }
+
+    private OtpRetentionService service(boolean enabled, boolean partitioning) {
+        return new OtpRetentionService(otpPartitionRepository, enabled, partitioning, Period.ofDays(30), PREMAKE_DAYS,
+                BATCH_SIZE, MAX_BATCHES, Duration.ZERO, Duration.ofSeconds(2));
+    }
+}
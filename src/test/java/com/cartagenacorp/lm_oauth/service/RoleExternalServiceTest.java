@@ -0,0 +1,77 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.dto.PermissionDTO;
+import com.cartagenacorp.lm_oauth.dto.RoleDTO;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationBus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RoleExternalServiceTest {
+
+    private static final Duration NOT_FOUND_TTL = Duration.ofMillis(100);
+
+    private final UUID organizationId = UUID.randomUUID();
+
+    private RestTemplate restTemplate;
+    private RoleExternalService service;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        ExternalCallGuard externalCallGuard = mock(ExternalCallGuard.class);
+        when(externalCallGuard.execute(anyString(), any())).thenAnswer(invocation -> {
+            Supplier<?> call = invocation.getArgument(1);
+            return call.get();
+        });
+        service = new RoleExternalService(restTemplate, externalCallGuard, mock(CacheInvalidationBus.class),
+                new SimpleMeterRegistry(), Duration.ofMinutes(10), NOT_FOUND_TTL, Duration.ofMinutes(1), 100);
+    }
+
+    @Test
+    void aNotFoundRoleIsAskedAgainAfterTheShortTtl() throws InterruptedException {
+        when(restTemplate.getForEntity(anyString(), eq(RoleDTO.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null))
+                .thenReturn(ResponseEntity.ok(role("users:read")));
+
+        assertThat(service.getPermissionsByRole("AUDITOR", organizationId)).isEmpty();
+        assertThat(service.getPermissionsByRole("AUDITOR", organizationId)).isEmpty();
+        verify(restTemplate, times(1)).getForEntity(anyString(), eq(RoleDTO.class));
+
+        TimeUnit.MILLISECONDS.sleep(NOT_FOUND_TTL.toMillis() * 2);
+
+        assertThat(service.getPermissionsByRole("AUDITOR", organizationId)).containsExactly("users:read");
+        verify(restTemplate, times(2)).getForEntity(anyString(), eq(RoleDTO.class));
+    }
+
+    @Test
+    void foundPermissionsKeepTheRegularTtl() throws InterruptedException {
+        when(restTemplate.getForEntity(anyString(), eq(RoleDTO.class))).thenReturn(ResponseEntity.ok(role("users:read")));
+
+        service.getPermissionsByRole("ADMIN", organizationId);
+        TimeUnit.MILLISECONDS.sleep(NOT_FOUND_TTL.toMillis() * 2);
+
+        assertThat(service.getPermissionsByRole("ADMIN", organizationId)).containsExactly("users:read");
+        verify(restTemplate, times(1)).getForEntity(anyString(), eq(RoleDTO.class));
+    }
+
+    private static RoleDTO role(String permission) {
+        return new RoleDTO("ROLE", List.of(new PermissionDTO(permission)), null);
+    }
+}
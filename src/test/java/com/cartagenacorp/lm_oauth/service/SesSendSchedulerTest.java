@@ -0,0 +1,76 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.ses.SesAsyncClient;
+import software.amazon.awssdk.services.ses.model.GetSendQuotaResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SesSendSchedulerTest {
+
+    private static final Duration WINDOW = Duration.ofSeconds(10);
+
+    private final SesAsyncClient sesAsyncClient = mock(SesAsyncClient.class);
+    private SesSendScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    void splitsTheAccountRateAcrossReplicas() {
+        scheduler = scheduler(10, 2);
+
+        scheduler.start();
+
+        assertThat(scheduler.sendableWithin(WINDOW)).isEqualTo(50);
+        verify(sesAsyncClient, never()).getSendQuota();
+    }
+
+    @Test
+    void startsWithTheFallbackRateAndAppliesTheQuotaWhenSesAnswers() {
+        CompletableFuture<GetSendQuotaResponse> quota = new CompletableFuture<>();
+        when(sesAsyncClient.getSendQuota()).thenReturn(quota);
+        scheduler = scheduler(0, 2);
+
+        scheduler.start();
+        assertThat(scheduler.sendableWithin(WINDOW)).isEqualTo(5);
+
+        quota.complete(GetSendQuotaResponse.builder().maxSendRate(14.0).build());
+        assertThat(scheduler.sendableWithin(WINDOW)).isEqualTo(70);
+    }
+
+    @Test
+    void keepsTheFallbackRateWhenTheQuotaCannotBeRead() {
+        when(sesAsyncClient.getSendQuota()).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("sin red")));
+        scheduler = scheduler(0, 1);
+
+        scheduler.start();
+
+        assertThat(scheduler.sendableWithin(WINDOW)).isEqualTo(10);
+    }
+
+    @Test
+    void nothingIsSendableBeforeStart() {
+        scheduler = scheduler(10, 1);
+
+        assertThat(scheduler.sendableWithin(WINDOW)).isZero();
+    }
+
+    private SesSendScheduler scheduler(double configuredSendRate, int replicas) {
+        return new SesSendScheduler(sesAsyncClient, new SimpleMeterRegistry(), "noreply@example.com",
+                configuredSendRate, 1, 1000, replicas);
+    }
+}
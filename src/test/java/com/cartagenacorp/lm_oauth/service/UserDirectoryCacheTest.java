@@ -0,0 +1,91 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.dto.UserSnapshot;
+import com.cartagenacorp.lm_oauth.event.CacheInvalidationMessage;
+import com.cartagenacorp.lm_oauth.mapper.UserMapper;
+import com.cartagenacorp.lm_oauth.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UserDirectoryCacheTest {
+
+    private UserBatchLookup userBatchLookup;
+    private UserDirectoryCache cache;
+
+    private final UserSnapshot ana = snapshot("ana@example.com");
+    private final UserSnapshot luis = snapshot("luis@example.com");
+    private final UserSnapshot eva = snapshot("eva@example.com");
+
+    @BeforeEach
+    void setUp() {
+        userBatchLookup = mock(UserBatchLookup.class);
+        when(userBatchLookup.findByIds(any())).thenAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            return List.of(ana, luis, eva).stream().filter(user -> ids.contains(user.id())).toList();
+        });
+        cache = new UserDirectoryCache(mock(UserRepository.class), userBatchLookup, mock(UserMapper.class),
+                new SimpleMeterRegistry(), Duration.ofMinutes(10), 100);
+    }
+
+    @Test
+    void returnsUsersInRequestOrderAndLoadsOnlyTheMisses() {
+        cache.findAllById(List.of(ana.id(), luis.id()));
+
+        List<UserSnapshot> users = cache.findAllById(List.of(eva.id(), luis.id(), ana.id()));
+
+        assertThat(users).containsExactly(eva, luis, ana);
+        verify(userBatchLookup).findByIds(List.of(ana.id(), luis.id()));
+        verify(userBatchLookup).findByIds(List.of(eva.id()));
+    }
+
+    @Test
+    void ignoresDuplicatedAndNullIds() {
+        List<UUID> ids = new ArrayList<>(List.of(ana.id(), ana.id()));
+        ids.add(null);
+
+        assertThat(cache.findAllById(ids)).containsExactly(ana);
+    }
+
+    @Test
+    void aUserEvictedWhileItsBatchLoadsIsNotLeftInCache() {
+        when(userBatchLookup.findByIds(List.of(ana.id()))).thenAnswer(invocation -> {
+            // La fila se leyó antes de que otra transacción la cambiara y expulsara
+            cache.evict(ana.id());
+            return List.of(ana);
+        });
+
+        assertThat(cache.findAllById(List.of(ana.id()))).containsExactly(ana);
+        cache.findAllById(List.of(ana.id()));
+
+        verify(userBatchLookup, times(2)).findByIds(List.of(ana.id()));
+    }
+
+    @Test
+    void invalidationMessagesEvictTheCachedUsers() {
+        cache.findAllById(List.of(ana.id(), luis.id()));
+
+        cache.onCacheInvalidation(CacheInvalidationMessage.user(ana.id()));
+        cache.findAllById(List.of(ana.id(), luis.id()));
+        cache.onCacheInvalidation(CacheInvalidationMessage.all());
+        cache.findAllById(List.of(ana.id(), luis.id()));
+
+        verify(userBatchLookup).findByIds(List.of(ana.id()));
+        verify(userBatchLookup, times(2)).findByIds(List.of(ana.id(), luis.id()));
+    }
+
+    private static UserSnapshot snapshot(String email) {
+        return new UserSnapshot(UUID.randomUUID(), email, null, null, null, "USER", UUID.randomUUID(), LocalDateTime.now());
+    }
+}
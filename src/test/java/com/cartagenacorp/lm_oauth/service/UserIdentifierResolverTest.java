@@ -0,0 +1,157 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.dto.UserIdentifierView;
+import com.cartagenacorp.lm_oauth.event.UserChangedEvent;
+import com.cartagenacorp.lm_oauth.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class UserIdentifierResolverTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final UserIdentifierView ana = view("Ana@Example.com", "Ana", "Pérez", LocalDateTime.of(2024, 1, 1, 0, 0));
+    private final UserIdentifierView otherAna = view("ana.gomez@example.com", "Ana", "Gómez", LocalDateTime.of(2025, 1, 1, 0, 0));
+
+    private UserRepository userRepository;
+    private UserIdentifierResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.streamIdentifiers()).thenAnswer(invocation -> List.of(otherAna, ana).stream());
+        when(userRepository.findOldestIdByIdentifier(anyString())).thenReturn(Optional.empty());
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        resolver = new UserIdentifierResolver(userRepository, transactionTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        resolver.shutdown();
+    }
+
+    @Test
+    void resolvesEveryIdentifierKeyAndPrefersTheOldestUser() throws InterruptedException {
+        resolver.rebuildAsync();
+        awaitIndexed("ana@example.com");
+
+        assertThat(resolver.resolve("  ANA@example.com ")).contains(ana.getId());
+        assertThat(resolver.resolve("ana.pérez")).contains(ana.getId());
+        assertThat(resolver.resolve("ana gómez")).contains(otherAna.getId());
+        assertThat(resolver.resolve("gómez")).contains(otherAna.getId());
+        assertThat(resolver.resolve("ana")).contains(ana.getId());
+        assertThat(resolver.resolve("nadie")).isEmpty();
+        assertThat(resolver.resolve(" ")).isEmpty();
+    }
+
+    @Test
+    void answersFromTheDatabaseWithoutWaitingForTheIndex() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.streamIdentifiers()).thenAnswer(invocation -> {
+            release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            return List.of(ana).stream();
+        });
+        when(userRepository.findOldestIdByIdentifier("ana")).thenReturn(Optional.of(ana.getId()));
+
+        assertThat(resolver.resolve("Ana")).contains(ana.getId());
+
+        verify(userRepository, timeout(TIMEOUT_MILLIS)).streamIdentifiers();
+        release.countDown();
+    }
+
+    @Test
+    void changesDuringTheRebuildAreKeptAfterTheSwap() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.streamIdentifiers()).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            return List.of(ana).stream();
+        });
+        UserIdentifierView luis = view("luis@example.com", "Luis", "Ruiz", LocalDateTime.now());
+        when(userRepository.findIdentifierById(luis.getId())).thenReturn(Optional.of(luis));
+
+        resolver.rebuildAsync();
+        assertThat(started.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+        resolver.onUserChanged(new UserChangedEvent(UserChangedEvent.Type.SAVED, luis.getId(), luis.getEmail(),
+                luis.getFirstName(), luis.getLastName(), UUID.randomUUID(), luis.getCreatedAt()));
+        release.countDown();
+
+        awaitIndexed("ana@example.com");
+        assertThat(resolver.resolve("luis@example.com")).contains(luis.getId());
+    }
+
+    @Test
+    void invalidateAllFallsBackToTheDatabaseUntilTheIndexIsRebuilt() throws InterruptedException {
+        resolver.rebuildAsync();
+        awaitIndexed("ana@example.com");
+        clearInvocations(userRepository);
+
+        resolver.invalidateAll();
+
+        assertThat(resolver.resolve("ana@example.com")).isEmpty();
+        verify(userRepository, atLeastOnce()).findOldestIdByIdentifier("ana@example.com");
+        awaitIndexed("ana@example.com");
+        verify(userRepository).streamIdentifiers();
+    }
+
+    // El índice se sustituye en su propio hilo; hasta entonces la búsqueda va al repositorio, que aquí no encuentra nada
+    private void awaitIndexed(String identifier) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (resolver.resolve(identifier).isEmpty()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static UserIdentifierView view(String email, String firstName, String lastName, LocalDateTime createdAt) {
+        UUID id = UUID.randomUUID();
+        return new UserIdentifierView() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getEmail() {
+                return email;
+            }
+
+            @Override
+            public String getFirstName() {
+                return firstName;
+            }
+
+            @Override
+            public String getLastName() {
+                return lastName;
+            }
+
+            @Override
+            public LocalDateTime getCreatedAt() {
+                return createdAt;
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package com.cartagenacorp.lm_oauth.service;
+
+import com.cartagenacorp.lm_oauth.entity.UserImportJob;
+import com.cartagenacorp.lm_oauth.exceptions.BaseException;
+import com.cartagenacorp.lm_oauth.mapper.UserImportJobMapper;
+import com.cartagenacorp.lm_oauth.repository.UserImportJobReportRepository;
+import com.cartagenacorp.lm_oauth.repository.UserImportJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class UserImportJobServiceTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private UserImportEngine userImportEngine;
+    private UserImportJobRepository userImportJobRepository;
+    private UserImportJobService service;
+
+    private final CountDownLatch importStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseImport = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userImportEngine = mock(UserImportEngine.class);
+        userImportJobRepository = mock(UserImportJobRepository.class);
+        when(userImportJobRepository.save(any(UserImportJob.class))).thenAnswer(invocation -> {
+            UserImportJob job = invocation.getArgument(0);
+            job.setId(UUID.randomUUID());
+            return job;
+        });
+        when(userImportJobRepository.markRunning(any(), any())).thenReturn(1);
+        when(userImportJobRepository.finish(any(), any(), any(), any())).thenReturn(1);
+        when(userImportEngine.importUsers(any(), any(), any())).thenAnswer(invocation -> {
+            importStarted.countDown();
+            releaseImport.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            return null;
+        });
+
+        service = new UserImportJobService(userImportEngine, userImportJobRepository,
+                mock(UserImportJobReportRepository.class), mock(UserImportJobMapper.class),
+                2, 10, 1, Duration.ofMinutes(10), DataSize.ofMegabytes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseImport.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void rejectsASecondImportOfTheSameOrganizationWhileOneIsRunning() throws Exception {
+        UUID organizationId = UUID.randomUUID();
+        service.submit(file(), organizationId, UUID.randomUUID());
+        assertThat(importStarted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+
+        assertThatThrownBy(() -> service.submit(file(), organizationId, UUID.randomUUID()))
+                .isInstanceOfSatisfying(BaseException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value()));
+    }
+
+    @Test
+    void otherOrganizationsAreNotThrottled() throws Exception {
+        service.submit(file(), UUID.randomUUID(), UUID.randomUUID());
+        assertThat(importStarted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+
+        service.submit(file(), UUID.randomUUID(), UUID.randomUUID());
+    }
+
+    @Test
+    void releasesTheSlotWhenTheImportFinishes() throws Exception {
+        UUID organizationId = UUID.randomUUID();
+        service.submit(file(), organizationId, UUID.randomUUID());
+        releaseImport.countDown();
+        verify(userImportJobRepository, timeout(TIMEOUT_MILLIS))
+                .finish(any(), eq(UserImportJob.Status.COMPLETED), any(), any());
+
+        assertThat(submitWhenReleased(organizationId)).isTrue();
+    }
+
+    @Test
+    void releasesTheSlotWhenTheJobIsNoLongerQueued() throws Exception {
+        when(userImportJobRepository.markRunning(any(), any())).thenReturn(0);
+        UUID organizationId = UUID.randomUUID();
+        service.submit(file(), organizationId, UUID.randomUUID());
+
+        assertThat(submitWhenReleased(organizationId)).isTrue();
+        verify(userImportEngine, never()).importUsers(any(), any(), any());
+        verify(userImportJobRepository, never()).finish(any(), any(), any(), any());
+    }
+
+    // El slot se libera en el hilo de la importación justo después de cerrar el trabajo
+    private boolean submitWhenReleased(UUID organizationId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                service.submit(file(), organizationId, UUID.randomUUID());
+                return true;
+            } catch (BaseException e) {
+                Thread.sleep(10);
+            }
+        }
+        return false;
+    }
+
+    private static MockMultipartFile file() {
+        return new MockMultipartFile("file", "users.xlsx", null, new byte[]{1});
+    }
+}
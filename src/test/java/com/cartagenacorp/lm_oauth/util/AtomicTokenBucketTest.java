@@ -0,0 +1,95 @@
+package com.cartagenacorp.lm_oauth.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AtomicTokenBucketTest {
+
+    @Test
+    void allowsABurstOfCapacityRequests() {
+        AtomicTokenBucket bucket = new AtomicTokenBucket(5, Duration.ofHours(1));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire()).isZero();
+        }
+    }
+
+    @Test
+    void rejectsOnceTheBurstIsSpentAndReportsTheWaitUntilTheNextPermit() {
+        AtomicTokenBucket bucket = new AtomicTokenBucket(4, Duration.ofHours(1));
+        for (int i = 0; i < 4; i++) {
+            bucket.tryAcquire();
+        }
+
+        long wait = bucket.tryAcquire();
+
+        // Un permiso se recupera cada periodo / capacidad
+        assertThat(wait).isPositive().isLessThanOrEqualTo(Duration.ofMinutes(15).toNanos());
+    }
+
+    @Test
+    void rejectedRequestsDoNotConsumePermits() {
+        AtomicTokenBucket bucket = new AtomicTokenBucket(1, Duration.ofHours(1));
+        bucket.tryAcquire();
+
+        long first = bucket.tryAcquire();
+        long second = bucket.tryAcquire();
+
+        assertThat(second).isPositive().isLessThanOrEqualTo(first);
+    }
+
+    @Test
+    void recoversPermitsOverTime() throws InterruptedException {
+        AtomicTokenBucket bucket = new AtomicTokenBucket(2, Duration.ofMillis(100));
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+
+        TimeUnit.MILLISECONDS.sleep(60);
+
+        assertThat(bucket.tryAcquire()).isZero();
+    }
+
+    @Test
+    void concurrentCallersNeverExceedTheCapacity() throws Exception {
+        AtomicTokenBucket bucket = new AtomicTokenBucket(100, Duration.ofHours(1));
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1000; i++) {
+                        if (bucket.tryAcquire() == 0) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(granted).hasValue(100);
+    }
+
+    @Test
+    void rejectsANonPositiveCapacity() {
+        assertThatThrownBy(() -> new AtomicTokenBucket(0, Duration.ofMinutes(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
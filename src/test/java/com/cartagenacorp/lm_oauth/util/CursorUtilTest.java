@@ -0,0 +1,47 @@
+package com.cartagenacorp.lm_oauth.util;
+
+import com.cartagenacorp.lm_oauth.exceptions.BaseException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorUtilTest {
+
+    @Test
+    void roundTripsThePosition() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_000_000);
+        UUID id = UUID.randomUUID();
+
+        CursorUtil.Position position = CursorUtil.decode(CursorUtil.encode(createdAt, id));
+
+        assertThat(position).isEqualTo(new CursorUtil.Position(createdAt, id));
+    }
+
+    @Test
+    void roundTripsAPositionWithoutCreatedAt() {
+        UUID id = UUID.randomUUID();
+
+        CursorUtil.Position position = CursorUtil.decode(CursorUtil.encode(null, id));
+
+        assertThat(position).isEqualTo(new CursorUtil.Position(null, id));
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        String cursor = CursorUtil.encode(LocalDateTime.now(), UUID.randomUUID());
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void rejectsAMalformedCursor() {
+        assertThatThrownBy(() -> CursorUtil.decode("no-es-un-cursor"))
+                .isInstanceOfSatisfying(BaseException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST.value()));
+    }
+}
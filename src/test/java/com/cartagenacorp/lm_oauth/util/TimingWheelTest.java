@@ -0,0 +1,77 @@
+package com.cartagenacorp.lm_oauth.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimingWheelTest {
+
+    @Test
+    void expiresAnEntryOnceItsDeadlineIsReachedAndNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 4, 0);
+        wheel.schedule("otp", 250);
+
+        assertThat(wheel.advance(200)).isEmpty();
+        assertThat(wheel.advance(300)).containsExactly("otp");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancelledEntriesAreDiscarded() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 4, 0);
+        TimingWheel.Timeout<String> timeout = wheel.schedule("otp", 300);
+
+        timeout.cancel();
+
+        assertThat(wheel.advance(1000)).isEmpty();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void entriesBeyondTheFirstLevelCascadeDownAndExpireOnTime() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        wheel.schedule("far", 10_000);
+
+        assertThat(wheel.advance(9_990)).isEmpty();
+        assertThat(wheel.advance(10_000)).containsExactly("far");
+    }
+
+    @Test
+    void anOverdueEntryExpiresOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 4, 1_000);
+        wheel.schedule("overdue", 500);
+
+        assertThat(wheel.advance(1_100)).containsExactly("overdue");
+    }
+
+    @Test
+    void everyEntryExpiresExactlyOnceAtItsTick() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 8, 0);
+        int scheduled = 0;
+        for (int deadline = 10; deadline <= 5_000; deadline += 7) {
+            wheel.schedule(deadline, deadline);
+            scheduled++;
+        }
+
+        List<Integer> expired = new ArrayList<>();
+        for (long now = 10; now <= 5_010; now += 10) {
+            for (int deadline : wheel.advance(now)) {
+                // Nunca antes del plazo y como mucho un tick después
+                assertThat(deadline).isLessThanOrEqualTo((int) now).isGreaterThan((int) now - 20);
+                expired.add(deadline);
+            }
+        }
+
+        assertThat(expired).hasSize(scheduled).doesNotHaveDuplicates();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void rejectsAWheelWithASingleSlot() {
+        assertThatThrownBy(() -> new TimingWheel<>(100, 1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,42 @@
+package com.cartagenacorp.lm_oauth.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTest {
+
+    @Test
+    void grantsUpToCapacityWithoutWaiting() {
+        TokenBucket bucket = new TokenBucket(1, 5);
+
+        assertThat(bucket.reserve(5)).isZero();
+    }
+
+    @Test
+    void chargesTheDebtOfABurstLargerThanTheCapacity() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        bucket.reserve(1);
+
+        long waitNanos = bucket.reserve(2);
+
+        assertThat(waitNanos).isBetween(TimeUnit.MILLISECONDS.toNanos(1900), TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void drainForcesTheNextRequestToWait() {
+        TokenBucket bucket = new TokenBucket(1, 10);
+
+        bucket.drain();
+
+        assertThat(bucket.reserve(1)).isBetween(TimeUnit.MILLISECONDS.toNanos(900), TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void rejectsANonPositiveRate() {
+        assertThatThrownBy(() -> new TokenBucket(0, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,84 @@
+package com.cartagenacorp.lm_oauth.util;
+
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XlsxStreamReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsTheTextCellsOfTheFirstColumnWithoutTheHeader() throws IOException {
+        Path file = write(sheet -> {
+            sheet.createRow(0).createCell(0).setCellValue("email");
+            sheet.createRow(1).createCell(0).setCellValue("  ana@example.com ");
+            sheet.createRow(2).createCell(0).setCellValue(42);
+            sheet.createRow(3).createCell(0).setCellFormula("A2");
+            sheet.createRow(4).createCell(1).setCellValue("luis@example.com");
+            sheet.createRow(5).createCell(0).setCellValue(" ");
+            XSSFRow row = sheet.createRow(7);
+            row.createCell(0).setCellValue("eva@example.com");
+            row.createCell(1).setCellValue("ignorada");
+            // Texto compartido repetido
+            sheet.createRow(8).createCell(0).setCellValue("ana@example.com");
+        });
+
+        assertThat(read(file)).containsExactly(
+                "2:ana@example.com",
+                "8:eva@example.com",
+                "9:ana@example.com");
+    }
+
+    @Test
+    void anEmptySheetProducesNoRows() throws IOException {
+        Path file = write(sheet -> sheet.createRow(0).createCell(0).setCellValue("email"));
+
+        assertThat(read(file)).isEmpty();
+    }
+
+    @Test
+    void leavesNoTemporaryFilesBehind() throws IOException {
+        Path file = write(sheet -> sheet.createRow(1).createCell(0).setCellValue("ana@example.com"));
+        Path tmp = Path.of(System.getProperty("java.io.tmpdir"));
+        long before = countSharedStringFiles(tmp);
+
+        read(file);
+
+        assertThat(countSharedStringFiles(tmp)).isEqualTo(before);
+    }
+
+    private Path write(Consumer<XSSFSheet> content) throws IOException {
+        Path file = tempDir.resolve("users.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            content.accept(workbook.createSheet("usuarios"));
+            workbook.write(out);
+        }
+        return file;
+    }
+
+    private static List<String> read(Path file) throws IOException {
+        List<String> rows = new ArrayList<>();
+        XlsxStreamReader.readFirstColumn(file, (rowNumber, value) -> rows.add(rowNumber + ":" + value));
+        return rows;
+    }
+
+    private static long countSharedStringFiles(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("xlsx-strings-")).count();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+-- Benchmark de la búsqueda de usuarios: LIKE secuencial vs. índice GIN de trigramas.
+-- Ejecutar con psql sobre una base de datos desechable:
+--   psql -d lamuralla_bench -f user-search-trgm.sql
+-- Genera 1M de usuarios repartidos en 20 organizaciones (50k por organización).
+
+\timing on
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+DROP TABLE IF EXISTS users_bench;
+CREATE TABLE users_bench (LIKE users INCLUDING DEFAULTS);
+
+INSERT INTO users_bench (id, email, first_name, last_name, role, created_at, organization_id, registered)
+SELECT gen_random_uuid(),
+       'user' || g || '@empresa' || (g % 20) || '.com',
+       (ARRAY['Ana', 'Carlos', 'María', 'José', 'Lucía', 'Pedro', 'Sofía', 'Andrés'])[1 + g % 8] || g,
+       (ARRAY['Gómez', 'Pérez', 'Rodríguez', 'Martínez', 'López', 'Díaz', 'Torres', 'Ramírez'])[1 + (g / 8) % 8],
+       'USER',
+       now() - (g || ' seconds')::interval,
+       ('00000000-0000-0000-0000-' || lpad((g % 20)::text, 12, '0'))::uuid,
+       true
+FROM generate_series(1, 1000000) AS g;
+
+CREATE INDEX ON users_bench (organization_id, created_at DESC);
+ANALYZE users_bench;
+
+-- 1) Consulta actual (UserRepository.searchUsers): recorre todos los usuarios de la organización
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.* FROM users_bench u
+WHERE u.organization_id = '00000000-0000-0000-0000-000000000007'
+  AND (lower(concat(u.first_name, ' ', u.last_name)) LIKE '%' || lower('user12345') || '%'
+    OR lower(u.first_name) LIKE '%' || lower('user12345') || '%'
+    OR lower(u.last_name) LIKE '%' || lower('user12345') || '%'
+    OR lower(u.email) LIKE '%' || lower('user12345') || '%')
+ORDER BY u.created_at DESC
+LIMIT 10;
+
+CREATE INDEX idx_users_bench_search_text_trgm ON users_bench
+    USING gin ((lower(coalesce(first_name, '') || ' ' || coalesce(last_name, '') || ' ' || email)) gin_trgm_ops);
+ANALYZE users_bench;
+
+-- 2) Consulta con trigramas (UserRepository.searchUsersRanked)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.* FROM users_bench u
+WHERE u.organization_id = '00000000-0000-0000-0000-000000000007'
+  AND lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '') || ' ' || u.email) LIKE '%' || lower('user12345') || '%'
+  AND (lower(concat(u.first_name, ' ', u.last_name)) LIKE '%' || lower('user12345') || '%'
+    OR lower(u.first_name) LIKE '%' || lower('user12345') || '%'
+    OR lower(u.last_name) LIKE '%' || lower('user12345') || '%'
+    OR lower(u.email) LIKE '%' || lower('user12345') || '%')
+ORDER BY similarity(lower(coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '') || ' ' || u.email), lower('user12345')) DESC,
+         u.created_at DESC
+LIMIT 10;
+
+DROP TABLE users_bench;